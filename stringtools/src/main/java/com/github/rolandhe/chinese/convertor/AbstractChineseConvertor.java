@@ -1,9 +1,16 @@
 package com.github.rolandhe.chinese.convertor;
 
+import com.github.rolandhe.chinese.convertor.trie.DoubleArrayTrie;
 import com.github.rolandhe.chinese.convertor.trie.TrieNode;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.Objects;
+
 /**
- * 繁体简体互转抽象实现
+ * 繁体简体互转抽象实现。
+ * 子类提供{@link #getDoubleArrayTrie()}时使用双数组字典树，否则使用{@link #getRoot()}的字典树，两者转换结果相同
  */
 public abstract class AbstractChineseConvertor implements  ChineseConvertor{
 
@@ -14,8 +21,22 @@ public abstract class AbstractChineseConvertor implements  ChineseConvertor{
      */
     protected  abstract TrieNode getRoot();
 
+    /**
+     * 获取双数组字典树，默认返回null，使用{@link #getRoot()}的字典树
+     *
+     * @return
+     */
+    protected DoubleArrayTrie getDoubleArrayTrie() {
+        return null;
+    }
+
     @Override
     public String convert(String raw) {
+        DoubleArrayTrie trie = getDoubleArrayTrie();
+        if (trie != null) {
+            Appendable converted = convertUnchecked(raw, 0, raw.length(), trie, null);
+            return converted == null ? raw : converted.toString();
+        }
         StringBuilder sb = new StringBuilder(raw.length());
         char[] rawArray = raw.toCharArray();
 
@@ -49,6 +70,144 @@ public abstract class AbstractChineseConvertor implements  ChineseConvertor{
         return sb.toString();
     }
 
+    @Override
+    public void convert(CharSequence src, int start, int end, Appendable dst) throws IOException {
+        DoubleArrayTrie trie = getDoubleArrayTrie();
+        if (trie == null) {
+            ChineseConvertor.super.convert(src, start, end, dst);
+            return;
+        }
+        Objects.checkFromToIndex(start, end, src.length());
+        convert(src, start, end, trie, Objects.requireNonNull(dst));
+    }
+
+    @Override
+    public void convert(CharSequence src, int start, int end, StringBuilder dst) {
+        DoubleArrayTrie trie = getDoubleArrayTrie();
+        if (trie == null) {
+            ChineseConvertor.super.convert(src, start, end, dst);
+            return;
+        }
+        Objects.checkFromToIndex(start, end, src.length());
+        convertUnchecked(src, start, end, trie, Objects.requireNonNull(dst));
+    }
+
+    @Override
+    public int convert(char[] src, int off, int len, char[] dst, int dstOff) {
+        DoubleArrayTrie trie = getDoubleArrayTrie();
+        if (trie == null) {
+            return ChineseConvertor.super.convert(src, off, len, dst, dstOff);
+        }
+        Objects.checkFromIndexSize(off, len, src.length);
+        Objects.checkFromIndexSize(dstOff, 0, dst.length);
+        CharArrayAppender out = new CharArrayAppender(dst, dstOff);
+        convertUnchecked(CharBuffer.wrap(src, off, len), 0, len, trie, out);
+        return out.position - dstOff;
+    }
+
+    /**
+     * dst不会抛出IOException时使用
+     */
+    private static Appendable convertUnchecked(CharSequence src, int start, int end, DoubleArrayTrie trie,
+                                               Appendable dst) {
+        try {
+            return convert(src, start, end, trie, dst);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 使用双数组字典树转换src[start, end)：从每个位置开始找最长的完整词，找到时输出转换后的词，
+     * 否则原样输出一个字符，与{@link MatchContext}的匹配过程结果相同。
+     * 不是任何词开头的字符直接查表转换，不进入字典树。
+     * 与原文相同的部分先不输出，遇到变化时整段追加到dst；dst为null时在第一次变化时创建StringBuilder
+     *
+     * @param src
+     * @param start
+     * @param end
+     * @param trie
+     * @param dst
+     * @return dst，dst为null并且没有任何变化时返回null
+     * @throws IOException
+     */
+    private static Appendable convert(CharSequence src, int start, int end, DoubleArrayTrie trie, Appendable dst)
+            throws IOException {
+        // src[pending, i)与转换结果相同，还没有写入dst
+        int pending = start;
+        int i = start;
+        while (i < end) {
+            char c = src.charAt(i);
+            if (!trie.mayConvert(c)) {
+                i++;
+                continue;
+            }
+            if (!trie.needsMatch(c)) {
+                dst = flush(src, pending, i, end - start, dst);
+                dst.append(trie.convertSingle(c));
+                pending = ++i;
+                continue;
+            }
+            int state = DoubleArrayTrie.ROOT;
+            int matchedState = DoubleArrayTrie.NONE;
+            int matchedEnd = i;
+            for (int j = i; j < end; ) {
+                int codePoint = codePointAt(src, j, end);
+                state = trie.next(state, codePoint);
+                if (state == DoubleArrayTrie.NONE) {
+                    break;
+                }
+                j += Character.charCount(codePoint);
+                if (trie.isComplete(state)) {
+                    matchedState = state;
+                    matchedEnd = j;
+                }
+            }
+            if (matchedState != DoubleArrayTrie.NONE) {
+                if (!trie.sameAs(matchedState, src, i, matchedEnd)) {
+                    dst = flush(src, pending, i, end - start, dst);
+                    trie.appendTo(matchedState, dst);
+                    pending = matchedEnd;
+                }
+                i = matchedEnd;
+                continue;
+            }
+            i += Character.charCount(codePointAt(src, i, end));
+        }
+        if (dst != null && pending < end) {
+            dst.append(src, pending, end);
+        }
+        return dst;
+    }
+
+    /**
+     * 把src[from, to)追加到dst，dst为null时创建
+     */
+    private static Appendable flush(CharSequence src, int from, int to, int capacity, Appendable dst)
+            throws IOException {
+        if (dst == null) {
+            dst = new StringBuilder(capacity + 16);
+        }
+        if (from < to) {
+            dst.append(src, from, to);
+        }
+        return dst;
+    }
+
+    /**
+     * 与{@link Character#codePointAt(CharSequence, int)}相同，但不读取end之后的字符
+     */
+    private static int codePointAt(CharSequence s, int index, int end) {
+        char high = s.charAt(index);
+        if (Character.isHighSurrogate(high) && index + 1 < end) {
+            char low = s.charAt(index + 1);
+            if (Character.isLowSurrogate(low)) {
+                return Character.toCodePoint(high, low);
+            }
+        }
+        return high;
+    }
+
     /**
      * 转换已经匹配到的词并reset上下文
      *
@@ -151,4 +310,52 @@ public abstract class AbstractChineseConvertor implements  ChineseConvertor{
         final TrieNode node;
     }
 
+    /**
+     * 写入char[]的Appendable，空间不足时抛出IndexOutOfBoundsException
+     */
+    private static final class CharArrayAppender implements Appendable {
+        private final char[] dst;
+        int position;
+
+        CharArrayAppender(char[] dst, int position) {
+            this.dst = dst;
+            this.position = position;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            ensure(end - start);
+            if (csq instanceof CharBuffer && ((CharBuffer) csq).hasArray()) {
+                CharBuffer buffer = (CharBuffer) csq;
+                System.arraycopy(buffer.array(), buffer.arrayOffset() + buffer.position() + start, dst, position,
+                        end - start);
+                position += end - start;
+                return this;
+            }
+            for (int i = start; i < end; i++) {
+                dst[position++] = csq.charAt(i);
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            ensure(1);
+            dst[position++] = c;
+            return this;
+        }
+
+        private void ensure(int length) {
+            if (length > dst.length - position) {
+                throw new IndexOutOfBoundsException("dst is too small: need " + length + " more at " + position
+                        + ", length " + dst.length);
+            }
+        }
+    }
+
 }
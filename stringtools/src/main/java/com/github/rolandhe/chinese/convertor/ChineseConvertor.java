@@ -1,5 +1,8 @@
 package com.github.rolandhe.chinese.convertor;
 
+import java.io.IOException;
+import java.util.Objects;
+
 /**
  *
  * 繁体简体互转抽象
@@ -13,4 +16,54 @@ public interface ChineseConvertor {
    * @return
    */
   String convert(String raw);
+
+  /**
+   * 转换src[start, end)并追加到dst，默认实现先创建String，子类可以直接写入dst
+   *
+   * @param src
+   * @param start
+   * @param end
+   * @param dst
+   * @throws IOException dst写入失败
+   */
+  default void convert(CharSequence src, int start, int end, Appendable dst) throws IOException {
+    Objects.checkFromToIndex(start, end, src.length());
+    dst.append(convert(src.subSequence(start, end).toString()));
+  }
+
+  /**
+   * 转换src[start, end)并追加到dst
+   *
+   * @param src
+   * @param start
+   * @param end
+   * @param dst
+   */
+  default void convert(CharSequence src, int start, int end, StringBuilder dst) {
+    Objects.checkFromToIndex(start, end, src.length());
+    dst.append(convert(src.subSequence(start, end).toString()));
+  }
+
+  /**
+   * 转换src[off, off + len)并写入dst[dstOff, ...)。转换后的词可能比原文长，dst要留出足够的空间
+   *
+   * @param src
+   * @param off
+   * @param len
+   * @param dst
+   * @param dstOff
+   * @return 写入dst的字符数
+   * @throws IndexOutOfBoundsException 范围越界或者dst的空间不足，空间不足时dst中已经写入了部分内容
+   */
+  default int convert(char[] src, int off, int len, char[] dst, int dstOff) {
+    Objects.checkFromIndexSize(off, len, src.length);
+    Objects.checkFromIndexSize(dstOff, 0, dst.length);
+    String converted = convert(new String(src, off, len));
+    if (converted.length() > dst.length - dstOff) {
+      throw new IndexOutOfBoundsException("dst is too small: need " + converted.length() + ", remaining "
+              + (dst.length - dstOff));
+    }
+    converted.getChars(0, converted.length(), dst, dstOff);
+    return converted.length();
+  }
 }
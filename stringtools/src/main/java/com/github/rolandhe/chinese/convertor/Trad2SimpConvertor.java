@@ -1,6 +1,8 @@
 package com.github.rolandhe.chinese.convertor;
 
+import com.github.rolandhe.chinese.convertor.trie.DoubleArrayTrie;
 import com.github.rolandhe.chinese.convertor.trie.TrieHelper;
+import com.github.rolandhe.chinese.convertor.trie.TrieImage;
 import com.github.rolandhe.chinese.convertor.trie.TrieNode;
 
 /**
@@ -8,12 +10,31 @@ import com.github.rolandhe.chinese.convertor.trie.TrieNode;
  *
  */
 public class Trad2SimpConvertor extends AbstractChineseConvertor implements ChineseConvertor {
-  private static final TrieNode ROOT = TrieHelper.build("dict/trad_to_simp_phrases.txt",
-          "dict/trad_to_simp_characters.txt");
-
+  private static final String PHRASES = "dict/trad_to_simp_phrases.txt";
+  private static final String CHARACTERS = "dict/trad_to_simp_characters.txt";
+  /**
+   * 构建时由DictionaryCompiler编译的镜像，见pom.xml
+   */
+  private static final String IMAGE = "dict/trad_to_simp.dat";
 
   @Override
   protected TrieNode getRoot() {
-    return ROOT;
+    return RootHolder.ROOT;
+  }
+
+  @Override
+  protected DoubleArrayTrie getDoubleArrayTrie() {
+    return DoubleArrayHolder.TRIE;
+  }
+
+  /**
+   * 只有直接使用{@link #getRoot()}时才加载HashMap实现的字典树
+   */
+  private static final class RootHolder {
+    static final TrieNode ROOT = TrieHelper.build(PHRASES, CHARACTERS);
+  }
+
+  private static final class DoubleArrayHolder {
+    static final DoubleArrayTrie TRIE = TrieImage.loadOrBuild(IMAGE, PHRASES, CHARACTERS);
   }
 }
@@ -0,0 +1,52 @@
+package com.github.rolandhe.chinese.convertor.trie;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 构建时把文本字典编译成{@link TrieImage}，在maven的process-classes阶段执行，输出到classes目录后打进jar。
+ * <p>
+ * 参数：输出目录，之后每个参数描述一个镜像：镜像资源名=字典资源名,字典资源名...，字典从classpath加载，
+ * 与{@link TrieHelper#build(String...)}的顺序相同
+ *
+ */
+public final class DictionaryCompiler {
+  private DictionaryCompiler() {
+
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      throw new IllegalArgumentException("usage: DictionaryCompiler <outputDir> <image>=<file>[,<file>...] ...");
+    }
+    Path outputDir = Paths.get(args[0]);
+    for (int i = 1; i < args.length; i++) {
+      String[] pair = args[i].split("=", 2);
+      if (pair.length != 2) {
+        throw new IllegalArgumentException("expect <image>=<file>[,<file>...]: " + args[i]);
+      }
+      compile(pair[1].split(","), outputDir.resolve(pair[0]));
+    }
+  }
+
+  /**
+   * 编译字典并写出镜像
+   *
+   * @param files 字典资源名
+   * @param image 镜像文件
+   * @throws IOException
+   */
+  public static void compile(String[] files, Path image) throws IOException {
+    DoubleArrayTrie trie = DoubleArrayTrie.build(TrieHelper.build(files));
+    if (image.getParent() != null) {
+      Files.createDirectories(image.getParent());
+    }
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(image))) {
+      TrieImage.write(trie, out);
+    }
+  }
+}
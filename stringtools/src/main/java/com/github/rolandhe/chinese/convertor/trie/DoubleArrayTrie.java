@@ -0,0 +1,408 @@
+package com.github.rolandhe.chinese.convertor.trie;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 双数组字典树，与{@link TrieNode}描述的字典树等价，用于繁体简体互转。
+ * <ul>
+ *   <li>字典中出现的字符先映射为从1开始的连续编码：BMP字符查char[65536]，增补字符在排序的int[]中二分查找</li>
+ *   <li>状态s经过编码为c的字符转到t = base[s] + c，当且仅当check[t] == s；根状态是0</li>
+ *   <li>value[t]不为0时状态t对应一个完整的词，转换后的词保存在共享的char[]中：pool[value[t]]是长度，后面是内容</li>
+ * </ul>
+ * 每个状态只占3个int，查找是几次数组访问，没有装箱和HashMap的指针跳转。
+ * 另外由数组推出每个BMP字符单独转换的结果和“需要进入字典树匹配”的位图，大多数字符一次数组访问即可转换，
+ * 见{@link #needsMatch(char)}。
+ * 创建后不可变，线程安全。
+ *
+ */
+public final class DoubleArrayTrie {
+  /**
+   * 根状态
+   */
+  public static final int ROOT = 0;
+  /**
+   * 没有对应的状态
+   */
+  public static final int NONE = -1;
+
+  /**
+   * BMP字符的编码，0表示字典中没有该字符
+   */
+  final char[] bmpCodes;
+  /**
+   * 排序的增补字符与对应的编码
+   */
+  final int[] supplementaryPoints;
+  final int[] supplementaryCodes;
+  final int[] base;
+  final int[] check;
+  final int[] value;
+  final char[] pool;
+  /**
+   * BMP字符单独转换的结果，没有对应的词时是字符本身
+   */
+  private final char[] singles = new char[Character.MAX_VALUE + 1];
+  /**
+   * 需要进入字典树匹配的BMP字符
+   */
+  private final long[] needsMatch = new long[(Character.MAX_VALUE + 1) >>> 6];
+  /**
+   * 可能被转换的BMP字符：需要进入字典树匹配，或者单独转换的结果不是字符本身
+   */
+  private final long[] mayConvert = new long[(Character.MAX_VALUE + 1) >>> 6];
+
+  DoubleArrayTrie(char[] bmpCodes, int[] supplementaryPoints, int[] supplementaryCodes, int[] base, int[] check,
+                  int[] value, char[] pool) {
+    this.bmpCodes = bmpCodes;
+    this.supplementaryPoints = supplementaryPoints;
+    this.supplementaryCodes = supplementaryCodes;
+    this.base = base;
+    this.check = check;
+    this.value = value;
+    this.pool = pool;
+    initSingles();
+  }
+
+  /**
+   * 由{@link TrieHelper#build(String...)}加载的字典树构建
+   *
+   * @param root
+   * @return
+   */
+  public static DoubleArrayTrie build(TrieNode root) {
+    // 字母表按码点排序编码
+    TreeSet<Integer> alphabet = new TreeSet<>();
+    List<TrieNode> all = new ArrayList<>();
+    ArrayDeque<TrieNode> pending = new ArrayDeque<>();
+    pending.add(root);
+    while (!pending.isEmpty()) {
+      TrieNode node = pending.poll();
+      all.add(node);
+      for (TrieNode child : node.getChildren()) {
+        alphabet.add(child.getCodePoint());
+        pending.add(child);
+      }
+    }
+    if (alphabet.size() >= Character.MAX_VALUE) {
+      throw new IllegalArgumentException("too many distinct characters: " + alphabet.size());
+    }
+    char[] bmpCodes = new char[Character.MAX_VALUE + 1];
+    int supplementary = (int) alphabet.stream().filter(cp -> cp > Character.MAX_VALUE).count();
+    int[] supplementaryPoints = new int[supplementary];
+    int[] supplementaryCodes = new int[supplementary];
+    int code = 0;
+    int k = 0;
+    for (int codePoint : alphabet) {
+      code++;
+      if (codePoint <= Character.MAX_VALUE) {
+        bmpCodes[codePoint] = (char) code;
+      } else {
+        supplementaryPoints[k] = codePoint;
+        supplementaryCodes[k++] = code;
+      }
+    }
+
+    Builder builder = new Builder(all.size() * 2 + alphabet.size() + 1);
+    Map<TrieNode, Integer> states = new HashMap<>(all.size() * 2);
+    states.put(root, ROOT);
+    builder.use(ROOT);
+    // 按宽度优先的顺序为每个节点的子节点分配位置
+    for (TrieNode node : all) {
+      int state = states.get(node);
+      builder.setValue(state, node.getTo());
+      TrieNode[] children = node.getChildren().toArray(new TrieNode[0]);
+      if (children.length == 0) {
+        continue;
+      }
+      int[] codes = new int[children.length];
+      for (int i = 0; i < children.length; i++) {
+        codes[i] = codeOf(children[i].getCodePoint(), bmpCodes, supplementaryPoints, supplementaryCodes);
+      }
+      int b = builder.findBase(codes);
+      builder.base[state] = b;
+      for (int i = 0; i < children.length; i++) {
+        int t = b + codes[i];
+        builder.use(t);
+        builder.check[t] = state;
+        states.put(children[i], t);
+      }
+    }
+    return builder.finish(bmpCodes, supplementaryPoints, supplementaryCodes);
+  }
+
+  /**
+   * 从state经过codePoint转到的状态
+   *
+   * @param state
+   * @param codePoint
+   * @return 没有该转移时返回{@link #NONE}
+   */
+  public int next(int state, int codePoint) {
+    int code = codePoint <= Character.MAX_VALUE ? bmpCodes[codePoint]
+            : codeOf(codePoint, bmpCodes, supplementaryPoints, supplementaryCodes);
+    if (code == 0) {
+      return NONE;
+    }
+    int t = base[state] + code;
+    return t < check.length && check[t] == state ? t : NONE;
+  }
+
+  /**
+   * @param state
+   * @return 状态是否对应一个完整的词
+   */
+  public boolean isComplete(int state) {
+    return value[state] != 0;
+  }
+
+  /**
+   * 字符需要进入字典树匹配：可能是某个词的开头、单独转换的结果不是一个BMP字符，或者是代理字符。
+   * 其他字符直接用{@link #convertSingle(char)}转换
+   *
+   * @param c
+   * @return
+   */
+  public boolean needsMatch(char c) {
+    return (needsMatch[c >>> 6] & (1L << c)) != 0;
+  }
+
+  /**
+   * @param c
+   * @return 字符可能被转换。返回false的字符一定原样输出
+   */
+  public boolean mayConvert(char c) {
+    return (mayConvert[c >>> 6] & (1L << c)) != 0;
+  }
+
+  /**
+   * @param c 不需要进入字典树匹配的字符
+   * @return 字符单独转换的结果，没有对应的词时是字符本身
+   */
+  public char convertSingle(char c) {
+    return singles[c];
+  }
+
+  /**
+   * 追加state对应的转换后的词
+   *
+   * @param state 必须是完整的词
+   * @param sb
+   */
+  public void appendTo(int state, StringBuilder sb) {
+    int offset = value[state];
+    sb.append(pool, offset + 1, pool[offset]);
+  }
+
+  /**
+   * 追加state对应的转换后的词
+   *
+   * @param state 必须是完整的词
+   * @param out
+   * @throws IOException
+   */
+  public void appendTo(int state, Appendable out) throws IOException {
+    if (out instanceof StringBuilder) {
+      appendTo(state, (StringBuilder) out);
+      return;
+    }
+    int offset = value[state];
+    int end = offset + 1 + pool[offset];
+    for (int i = offset + 1; i < end; i++) {
+      out.append(pool[i]);
+    }
+  }
+
+  /**
+   * 比较state对应的转换后的词与s[start, end)
+   *
+   * @param state 必须是完整的词
+   * @param s
+   * @param start
+   * @param end
+   * @return 转换后的词与原文相同时返回true
+   */
+  public boolean sameAs(int state, CharSequence s, int start, int end) {
+    int offset = value[state];
+    if (pool[offset] != end - start) {
+      return false;
+    }
+    for (int i = start; i < end; i++) {
+      if (pool[++offset] != s.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return 状态数组的长度
+   */
+  public int size() {
+    return check.length;
+  }
+
+  /**
+   * @return 所有数组占用的字节数，不含对象头
+   */
+  public long memoryBytes() {
+    return bmpCodes.length * 2L + (supplementaryPoints.length + supplementaryCodes.length) * 4L
+            + (base.length + check.length + value.length) * 4L + pool.length * 2L
+            + singles.length * 2L + (needsMatch.length + mayConvert.length) * 8L;
+  }
+
+  private void initSingles() {
+    boolean[] hasChildren = new boolean[check.length];
+    for (int parent : check) {
+      if (parent != NONE) {
+        hasChildren[parent] = true;
+      }
+    }
+    for (int c = 0; c <= Character.MAX_VALUE; c++) {
+      singles[c] = (char) c;
+      // 代理字符可能组成字典中的增补字符
+      if (Character.isSurrogate((char) c)) {
+        needsMatch[c >>> 6] |= 1L << c;
+        continue;
+      }
+      int state = next(ROOT, c);
+      if (state == NONE) {
+        continue;
+      }
+      int offset = value[state];
+      if (hasChildren[state] || offset != 0 && (pool[offset] != 1 || Character.isSurrogate(pool[offset + 1]))) {
+        needsMatch[c >>> 6] |= 1L << c;
+      } else if (offset != 0) {
+        singles[c] = pool[offset + 1];
+      }
+    }
+    for (int c = 0; c <= Character.MAX_VALUE; c++) {
+      if (needsMatch((char) c) || singles[c] != c) {
+        mayConvert[c >>> 6] |= 1L << c;
+      }
+    }
+  }
+
+  private static int codeOf(int codePoint, char[] bmpCodes, int[] supplementaryPoints, int[] supplementaryCodes) {
+    if (codePoint <= Character.MAX_VALUE) {
+      return codePoint < 0 ? 0 : bmpCodes[codePoint];
+    }
+    int pos = Arrays.binarySearch(supplementaryPoints, codePoint);
+    return pos < 0 ? 0 : supplementaryCodes[pos];
+  }
+
+  /**
+   * 构建时可增长的数组
+   */
+  private static final class Builder {
+    private static final int MAX_TRIES = 16;
+    int[] base;
+    int[] check;
+    int[] value;
+    BitSet used = new BitSet();
+    int firstFree = 0;
+    /**
+     * 查找base的起点，之前的区域几乎已经填满，不再尝试
+     */
+    int searchFrom = 0;
+    int maxState = 0;
+    StringBuilder pool = new StringBuilder().append('\0');
+    Map<String, Integer> offsets = new HashMap<>();
+
+    Builder(int capacity) {
+      base = new int[capacity];
+      check = new int[capacity];
+      value = new int[capacity];
+      Arrays.fill(check, NONE);
+    }
+
+    void use(int state) {
+      ensure(state);
+      used.set(state);
+      maxState = Math.max(maxState, state);
+      if (state == firstFree) {
+        firstFree = used.nextClearBit(firstFree);
+      }
+    }
+
+    /**
+     * 找到base，使base + codes[i]都是空位。只有一个子节点时直接取第一个空位；
+     * 多个子节点时从searchFrom开始找，尝试次数过多说明起点附近已经很密，下次跳过起点处的空位，
+     * 留下的空洞由只有一个子节点的状态填充
+     */
+    int findBase(int[] codes) {
+      if (codes.length == 1) {
+        return used.nextClearBit(Math.max(firstFree, codes[0])) - codes[0];
+      }
+      int min = codes[0];
+      for (int c : codes) {
+        min = Math.min(min, c);
+      }
+      int start = Math.max(firstFree, searchFrom);
+      int b = Math.max(0, start - min);
+      int tries = 0;
+      while (true) {
+        int conflict = -1;
+        for (int c : codes) {
+          if (used.get(b + c)) {
+            conflict = c;
+            break;
+          }
+        }
+        if (conflict < 0) {
+          if (tries > MAX_TRIES) {
+            searchFrom = used.nextClearBit(start + 1);
+          }
+          return b;
+        }
+        tries++;
+        // 跳到冲突的编码能放下的最小base
+        b = Math.max(b + 1, used.nextClearBit(b + conflict) - conflict);
+      }
+    }
+
+    void setValue(int state, char[] to) {
+      if (to == null) {
+        return;
+      }
+      String key = new String(to);
+      Integer offset = offsets.get(key);
+      if (offset == null) {
+        if (to.length > Character.MAX_VALUE) {
+          throw new IllegalArgumentException("replacement is too long: " + to.length);
+        }
+        offset = pool.length();
+        pool.append((char) to.length).append(to);
+        offsets.put(key, offset);
+      }
+      value[state] = offset;
+    }
+
+    DoubleArrayTrie finish(char[] bmpCodes, int[] supplementaryPoints, int[] supplementaryCodes) {
+      int length = maxState + 1;
+      char[] chars = new char[pool.length()];
+      pool.getChars(0, chars.length, chars, 0);
+      return new DoubleArrayTrie(bmpCodes, supplementaryPoints, supplementaryCodes, Arrays.copyOf(base, length),
+              Arrays.copyOf(check, length), Arrays.copyOf(value, length), chars);
+    }
+
+    private void ensure(int state) {
+      if (state < check.length) {
+        return;
+      }
+      int capacity = Math.max(state + 1, check.length * 2);
+      int old = check.length;
+      base = Arrays.copyOf(base, capacity);
+      check = Arrays.copyOf(check, capacity);
+      value = Arrays.copyOf(value, capacity);
+      Arrays.fill(check, old, capacity, NONE);
+    }
+  }
+}
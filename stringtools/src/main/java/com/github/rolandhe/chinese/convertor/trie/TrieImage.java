@@ -0,0 +1,162 @@
+package com.github.rolandhe.chinese.convertor.trie;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * {@link DoubleArrayTrie}的二进制镜像，构建时由{@link DictionaryCompiler}从文本字典生成并打进jar，
+ * 运行时整块读入数组，不需要逐行解析文本、创建几万个{@link TrieNode}。文本字典仍然是唯一的数据来源。
+ * <p>
+ * 格式（大端）：
+ * <ul>
+ *   <li>MAGIC、VERSION，各一个int</li>
+ *   <li>BMP字母表：长度n、n个char；增补字母表：长度m、m个int。都按码点排序，编码就是在字母表中的序号加1，
+ *   BMP字符排在增补字符前面</li>
+ *   <li>状态数s，随后依次是s个int的base、check、value</li>
+ *   <li>pool的长度p、p个char</li>
+ * </ul>
+ * 格式变化时递增VERSION，读到其他版本的镜像时重新从文本字典构建。
+ *
+ */
+public final class TrieImage {
+  /**
+   * "STDA"
+   */
+  static final int MAGIC = 0x53544441;
+  static final int VERSION = 1;
+
+  private TrieImage() {
+
+  }
+
+  /**
+   * 写出镜像，不关闭out。trie必须由{@link DoubleArrayTrie#build(TrieNode)}构建，编码按码点顺序分配
+   *
+   * @param trie
+   * @param out
+   * @throws IOException
+   */
+  public static void write(DoubleArrayTrie trie, OutputStream out) throws IOException {
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    data.writeInt(countBmp(trie.bmpCodes));
+    for (int c = 0; c < trie.bmpCodes.length; c++) {
+      if (trie.bmpCodes[c] != 0) {
+        data.writeChar(c);
+      }
+    }
+    writeInts(data, trie.supplementaryPoints);
+    data.writeInt(trie.check.length);
+    for (int[] array : new int[][]{trie.base, trie.check, trie.value}) {
+      for (int v : array) {
+        data.writeInt(v);
+      }
+    }
+    data.writeInt(trie.pool.length);
+    for (char c : trie.pool) {
+      data.writeChar(c);
+    }
+    data.flush();
+  }
+
+  /**
+   * 从镜像读取，数组使用批量复制。buffer可以是映射的文件，读取后不再引用buffer
+   *
+   * @param source 从position开始读，读完后position移到镜像末尾
+   * @return
+   */
+  public static DoubleArrayTrie read(ByteBuffer source) {
+    if (!isCurrent(source)) {
+      throw new IllegalArgumentException("not a trie image of version " + VERSION);
+    }
+    ByteBuffer buffer = source.duplicate().order(ByteOrder.BIG_ENDIAN);
+    buffer.position(buffer.position() + 8);
+    char[] alphabet = readChars(buffer);
+    int[] supplementaryPoints = readInts(buffer);
+    char[] bmpCodes = new char[Character.MAX_VALUE + 1];
+    for (int i = 0; i < alphabet.length; i++) {
+      bmpCodes[alphabet[i]] = (char) (i + 1);
+    }
+    int[] supplementaryCodes = new int[supplementaryPoints.length];
+    for (int i = 0; i < supplementaryCodes.length; i++) {
+      supplementaryCodes[i] = alphabet.length + i + 1;
+    }
+    int states = buffer.getInt();
+    int[] base = readInts(buffer, states);
+    int[] check = readInts(buffer, states);
+    int[] value = readInts(buffer, states);
+    char[] pool = readChars(buffer);
+    source.position(buffer.position());
+    return new DoubleArrayTrie(bmpCodes, supplementaryPoints, supplementaryCodes, base, check, value, pool);
+  }
+
+  /**
+   * 优先读取classpath中的镜像；镜像不存在（例如没有经过maven构建）或者版本不同时，从文本字典构建
+   *
+   * @param image 镜像的资源名
+   * @param files 文本字典的资源名，与{@link TrieHelper#build(String...)}相同
+   * @return
+   */
+  public static DoubleArrayTrie loadOrBuild(String image, String... files) {
+    InputStream inputStream = TrieImage.class.getClassLoader().getResourceAsStream(image);
+    if (inputStream != null) {
+      ByteBuffer buffer;
+      try (InputStream in = inputStream) {
+        buffer = ByteBuffer.wrap(in.readAllBytes());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      if (isCurrent(buffer)) {
+        return read(buffer);
+      }
+    }
+    return DoubleArrayTrie.build(TrieHelper.build(files));
+  }
+
+  private static boolean isCurrent(ByteBuffer buffer) {
+    ByteBuffer header = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+    int position = header.position();
+    return header.remaining() >= 8 && header.getInt(position) == MAGIC && header.getInt(position + 4) == VERSION;
+  }
+
+  private static int countBmp(char[] bmpCodes) {
+    int count = 0;
+    for (char code : bmpCodes) {
+      if (code != 0) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static void writeInts(DataOutputStream data, int[] array) throws IOException {
+    data.writeInt(array.length);
+    for (int v : array) {
+      data.writeInt(v);
+    }
+  }
+
+  private static int[] readInts(ByteBuffer buffer) {
+    return readInts(buffer, buffer.getInt());
+  }
+
+  private static int[] readInts(ByteBuffer buffer, int length) {
+    int[] array = new int[length];
+    buffer.asIntBuffer().get(array);
+    buffer.position(buffer.position() + length * 4);
+    return array;
+  }
+
+  private static char[] readChars(ByteBuffer buffer) {
+    char[] array = new char[buffer.getInt()];
+    buffer.asCharBuffer().get(array);
+    buffer.position(buffer.position() + array.length * 2);
+    return array;
+  }
+}
@@ -1,6 +1,8 @@
 package com.github.rolandhe.chinese.convertor.trie;
 
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -82,6 +84,15 @@ public class TrieNode {
     return children.get(codePoint);
   }
 
+  /**
+   * 所有子节点，顺序不确定
+   *
+   * @return
+   */
+  public Collection<TrieNode> getChildren(){
+    return Collections.unmodifiableCollection(children.values());
+  }
+
   @Override
   public  String toString(){
     if(codePoint == ROOT_CODE_POINT){
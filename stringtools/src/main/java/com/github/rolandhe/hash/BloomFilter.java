@@ -0,0 +1,350 @@
+package com.github.rolandhe.hash;
+
+import com.github.rolandhe.hash.cityhash.CityHash;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 堆外的布隆过滤器，位数组保存在direct buffer或映射文件中，不占用java堆。
+ * <ul>
+ *   <li>每个key只计算一次{@link CityHash}的hash128，k个探测位置由高低两个64位按Kirsch–Mitzenmacher方式组合：
+ *   第i个位置为(low + i * hi)对位数取模</li>
+ *   <li>位数组按小端long访问，置位使用原子的按位或，多线程并发put、mightContain都不需要加锁</li>
+ *   <li>位数组按1G分段，总大小不受ByteBuffer 2G的限制</li>
+ * </ul>
+ * 文件格式：64字节的文件头(magic、版本、位数、hash个数，均为小端)，之后是位数组。
+ * {@link #writeTo(Path)}保存后可以用{@link #open(Path)}直接映射使用，加载时数据不会被拷贝；
+ * {@link #create(Path, long, double)}创建的过滤器直接在映射文件上修改。
+ * 已映射的文件在被gc回收时才会解除映射。
+ *
+ */
+public class BloomFilter {
+  private static final int MAGIC = 0x4d4f4c42;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 64;
+  /**
+   * 默认每段1G
+   */
+  private static final int DEFAULT_SEGMENT_SHIFT = 30;
+
+  private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final CityHash CITY_HASH = new CityHash();
+  private static final ThreadLocal<Number128> HASH = ThreadLocal.withInitial(() -> new Number128(0L, 0L));
+
+  private final long numBits;
+  private final int numHashes;
+  private final ByteBuffer[] segments;
+  private final int segmentShift;
+
+  private BloomFilter(long numBits, int numHashes, ByteBuffer[] segments, int segmentShift) {
+    this.numBits = numBits;
+    this.numHashes = numHashes;
+    this.segments = segments;
+    this.segmentShift = segmentShift;
+  }
+
+  /**
+   * 按预计的元素个数和误判率创建位数组在direct buffer中的过滤器
+   *
+   * @param expectedInsertions 预计插入的元素个数
+   * @param fpp 期望的误判率，(0, 1)之间
+   * @return
+   */
+  public static BloomFilter create(long expectedInsertions, double fpp) {
+    long numBits = optimalNumBits(expectedInsertions, fpp);
+    return create(numBits, optimalNumHashes(expectedInsertions, numBits), DEFAULT_SEGMENT_SHIFT);
+  }
+
+  static BloomFilter create(long numBits, int numHashes, int segmentShift) {
+    checkArguments(numBits, numHashes);
+    long bytes = numBits / 8;
+    long segmentSize = 1L << segmentShift;
+    ByteBuffer[] segments = new ByteBuffer[(int) ((bytes + segmentSize - 1) >>> segmentShift)];
+    for (int i = 0; i < segments.length; i++) {
+      int size = (int) Math.min(segmentSize, bytes - ((long) i << segmentShift));
+      // 原子操作要求long按8字节对齐
+      segments[i] = ByteBuffer.allocateDirect(size + 7).alignedSlice(8);
+    }
+    return new BloomFilter(numBits, numHashes, segments, segmentShift);
+  }
+
+  /**
+   * 创建位数组在映射文件中的过滤器，文件必须不存在
+   *
+   * @param file
+   * @param expectedInsertions 预计插入的元素个数
+   * @param fpp 期望的误判率，(0, 1)之间
+   * @return
+   * @throws IOException
+   */
+  public static BloomFilter create(Path file, long expectedInsertions, double fpp) throws IOException {
+    long numBits = optimalNumBits(expectedInsertions, fpp);
+    return create(file, numBits, optimalNumHashes(expectedInsertions, numBits), DEFAULT_SEGMENT_SHIFT);
+  }
+
+  static BloomFilter create(Path file, long numBits, int numHashes, int segmentShift) throws IOException {
+    checkArguments(numBits, numHashes);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      writeFully(channel, header(numBits, numHashes));
+      // 写入最后一个字节扩展文件，中间的位数组全部是0
+      writeFully(channel, ByteBuffer.allocate(1), HEADER_SIZE + numBits / 8 - 1);
+      return map(channel, numBits, numHashes, segmentShift);
+    }
+  }
+
+  /**
+   * 映射{@link #writeTo(Path)}或{@link #create(Path, long, double)}生成的文件，之后的修改直接写入文件
+   *
+   * @param file
+   * @return
+   * @throws IOException 文件不是合法的布隆过滤器文件
+   */
+  public static BloomFilter open(Path file) throws IOException {
+    return open(file, DEFAULT_SEGMENT_SHIFT);
+  }
+
+  static BloomFilter open(Path file, int segmentShift) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      while (header.hasRemaining() && channel.read(header) >= 0) {
+        // 读满文件头
+      }
+      if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+        throw new IOException("not a bloom filter file: " + file);
+      }
+      if (header.getInt(4) != VERSION) {
+        throw new IOException("unsupported bloom filter version " + header.getInt(4) + ": " + file);
+      }
+      long numBits = header.getLong(8);
+      int numHashes = header.getInt(16);
+      if (numBits <= 0 || numBits % Long.SIZE != 0 || numHashes <= 0
+              || channel.size() != HEADER_SIZE + numBits / 8) {
+        throw new IOException("corrupted bloom filter file: " + file);
+      }
+      return map(channel, numBits, numHashes, segmentShift);
+    }
+  }
+
+  /**
+   * 加入key，key按UTF-8编码后计算hash
+   *
+   * @param key
+   * @return 有位从0变成1时返回true，即key之前一定不存在
+   */
+  public boolean put(CharSequence key) {
+    Number128 hash = HASH.get();
+    CITY_HASH.hash128(key, hash);
+    return put(hash.getLowValue(), hash.getHiValue());
+  }
+
+  public boolean put(byte[] bytes, int offset, int length) {
+    Number128 hash = HASH.get();
+    CITY_HASH.hash128(bytes, offset, length, hash);
+    return put(hash.getLowValue(), hash.getHiValue());
+  }
+
+  /**
+   * 使用已经计算好的hash128加入key
+   *
+   * @param hashLow hash128的低64位
+   * @param hashHi hash128的高64位
+   * @return 有位从0变成1时返回true，即key之前一定不存在
+   */
+  public boolean put(long hashLow, long hashHi) {
+    boolean changed = false;
+    long combined = hashLow;
+    for (int i = 0; i < numHashes; i++) {
+      long bitIndex = (combined & Long.MAX_VALUE) % numBits;
+      long mask = 1L << bitIndex;
+      ByteBuffer segment = segment(bitIndex);
+      int index = indexInSegment(bitIndex);
+      // 已经置位时只读不写，避免无谓的原子操作
+      if (((long) LONG.get(segment, index) & mask) == 0) {
+        changed |= ((long) LONG.getAndBitwiseOr(segment, index, mask) & mask) == 0;
+      }
+      combined += hashHi;
+    }
+    return changed;
+  }
+
+  /**
+   * 判断key是否可能存在
+   *
+   * @param key
+   * @return false表示一定不存在，true表示可能存在
+   */
+  public boolean mightContain(CharSequence key) {
+    Number128 hash = HASH.get();
+    CITY_HASH.hash128(key, hash);
+    return mightContain(hash.getLowValue(), hash.getHiValue());
+  }
+
+  public boolean mightContain(byte[] bytes, int offset, int length) {
+    Number128 hash = HASH.get();
+    CITY_HASH.hash128(bytes, offset, length, hash);
+    return mightContain(hash.getLowValue(), hash.getHiValue());
+  }
+
+  /**
+   * 使用已经计算好的hash128判断key是否可能存在
+   *
+   * @param hashLow hash128的低64位
+   * @param hashHi hash128的高64位
+   * @return false表示一定不存在，true表示可能存在
+   */
+  public boolean mightContain(long hashLow, long hashHi) {
+    long combined = hashLow;
+    for (int i = 0; i < numHashes; i++) {
+      long bitIndex = (combined & Long.MAX_VALUE) % numBits;
+      if (((long) LONG.get(segment(bitIndex), indexInSegment(bitIndex)) & (1L << bitIndex)) == 0) {
+        return false;
+      }
+      combined += hashHi;
+    }
+    return true;
+  }
+
+  /**
+   * 把文件头和位数组写入文件，文件已存在时覆盖。direct buffer直接写入channel，不经过java堆
+   *
+   * @param file
+   * @throws IOException
+   */
+  public void writeTo(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      writeFully(channel, header(numBits, numHashes));
+      for (ByteBuffer segment : segments) {
+        writeFully(channel, segment.duplicate().clear());
+      }
+    }
+  }
+
+  /**
+   * 映射文件的过滤器把修改刷到磁盘，其他情况无操作
+   */
+  public void flush() {
+    for (ByteBuffer segment : segments) {
+      if (segment instanceof MappedByteBuffer) {
+        ((MappedByteBuffer) segment).force();
+      }
+    }
+  }
+
+  /**
+   * 当前置位的位数，需要扫描整个位数组
+   *
+   * @return
+   */
+  public long bitCount() {
+    long count = 0;
+    for (ByteBuffer segment : segments) {
+      for (int i = 0; i < segment.capacity(); i += 8) {
+        count += Long.bitCount((long) LONG.get(segment, i));
+      }
+    }
+    return count;
+  }
+
+  /**
+   * 按当前置位的比例估算的误判率，需要扫描整个位数组
+   *
+   * @return
+   */
+  public double expectedFpp() {
+    return Math.pow((double) bitCount() / numBits, numHashes);
+  }
+
+  public long bitSize() {
+    return numBits;
+  }
+
+  public int numHashes() {
+    return numHashes;
+  }
+
+  private ByteBuffer segment(long bitIndex) {
+    return segments[(int) (bitIndex >>> (segmentShift + 3))];
+  }
+
+  private int indexInSegment(long bitIndex) {
+    return (int) ((bitIndex >>> 3) & ((1L << segmentShift) - 1)) & ~7;
+  }
+
+  /**
+   * m = -n * ln(p) / (ln2)^2，向上取整到64的倍数
+   *
+   * @param n
+   * @param p
+   * @return
+   */
+  static long optimalNumBits(long n, double p) {
+    if (n <= 0) {
+      throw new IllegalArgumentException("expectedInsertions must be positive: " + n);
+    }
+    if (!(p > 0 && p < 1)) {
+      throw new IllegalArgumentException("fpp must be in (0, 1): " + p);
+    }
+    double bits = -n * Math.log(p) / (Math.log(2) * Math.log(2));
+    return Math.max(Long.SIZE, ((long) Math.ceil(bits) + Long.SIZE - 1) & -Long.SIZE);
+  }
+
+  /**
+   * k = m / n * ln2，至少为1
+   *
+   * @param n
+   * @param m
+   * @return
+   */
+  static int optimalNumHashes(long n, long m) {
+    return Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+  }
+
+  private static void checkArguments(long numBits, int numHashes) {
+    if (numBits <= 0 || numBits % Long.SIZE != 0) {
+      throw new IllegalArgumentException("numBits must be a positive multiple of 64: " + numBits);
+    }
+    if (numHashes <= 0) {
+      throw new IllegalArgumentException("numHashes must be positive: " + numHashes);
+    }
+  }
+
+  private static BloomFilter map(FileChannel channel, long numBits, int numHashes, int segmentShift)
+          throws IOException {
+    long bytes = numBits / 8;
+    long segmentSize = 1L << segmentShift;
+    ByteBuffer[] segments = new ByteBuffer[(int) ((bytes + segmentSize - 1) >>> segmentShift)];
+    for (int i = 0; i < segments.length; i++) {
+      long start = (long) i << segmentShift;
+      segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + start, Math.min(segmentSize, bytes - start));
+    }
+    return new BloomFilter(numBits, numHashes, segments, segmentShift);
+  }
+
+  private static ByteBuffer header(long numBits, int numHashes) {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    header.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, numBits).putInt(16, numHashes);
+    return header;
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+}
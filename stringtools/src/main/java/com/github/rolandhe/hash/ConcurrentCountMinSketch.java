@@ -0,0 +1,169 @@
+package com.github.rolandhe.hash;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 线程安全的{@link CountMinSketch}，多个线程同时记录时互不阻塞。
+ * <ul>
+ *   <li>内部是stripes个形状相同的子sketch，每个由一把锁保护，类似LongAdder的Cell</li>
+ *   <li>线程记住上次使用的子sketch，tryLock失败就换下一个，所有子sketch都忙时才等待锁</li>
+ *   <li>子sketch内部仍是conservative update；估计值是各子sketch估计值之和，仍不小于真实值</li>
+ * </ul>
+ * 读取不加锁，只看到其他线程已经写入的计数，估计值在并发记录时可能略小于最终值。
+ * 子sketch的数量不少于并发线程数时基本没有竞争，代价是估计时要读stripes * depth个计数。
+ *
+ */
+public class ConcurrentCountMinSketch {
+  private static final ThreadLocal<int[]> PROBE = ThreadLocal.withInitial(
+          () -> new int[]{(int) Thread.currentThread().getId()});
+
+  private final CountMinSketch[] stripes;
+  private final ReentrantLock[] locks;
+
+  /**
+   * 子sketch的数量等于cpu数
+   *
+   * @param width 每行的列数，必须是2的幂，至少为2
+   * @param depth 行数，[1, 64]之间
+   */
+  public ConcurrentCountMinSketch(int width, int depth) {
+    this(width, depth, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param width 每行的列数，必须是2的幂，至少为2
+   * @param depth 行数，[1, 64]之间
+   * @param stripes 子sketch的数量
+   */
+  public ConcurrentCountMinSketch(int width, int depth, int stripes) {
+    if (stripes <= 0) {
+      throw new IllegalArgumentException("stripes must be positive: " + stripes);
+    }
+    this.stripes = new CountMinSketch[stripes];
+    this.locks = new ReentrantLock[stripes];
+    for (int i = 0; i < stripes; i++) {
+      this.stripes[i] = new CountMinSketch(width, depth);
+      this.locks[i] = new ReentrantLock();
+    }
+  }
+
+  /**
+   * 按误差范围创建，参见{@link CountMinSketch#withError(double, double)}。
+   * 每个子sketch满足该误差，合并后相对于总数的误差不变
+   *
+   * @param epsilon 相对于总数的误差
+   * @param delta 超出误差的概率
+   * @param stripes 子sketch的数量
+   * @return
+   */
+  public static ConcurrentCountMinSketch withError(double epsilon, double delta, int stripes) {
+    return new ConcurrentCountMinSketch(CountMinSketch.widthFor(epsilon), CountMinSketch.depthFor(delta), stripes);
+  }
+
+  public void add(CharSequence key) {
+    add(key, 1);
+  }
+
+  /**
+   * 增加key的计数，key按UTF-8编码后计算hash
+   *
+   * @param key
+   * @param count 不能是负数
+   */
+  public void add(CharSequence key, long count) {
+    Number128 hash = CountMinSketch.hash(key);
+    addHash(hash.getLowValue(), hash.getHiValue(), count);
+  }
+
+  /**
+   * 使用已经计算好的hash128增加计数
+   *
+   * @param hashLow hash128的低64位
+   * @param hashHi hash128的高64位
+   * @param count 不能是负数
+   */
+  public void addHash(long hashLow, long hashHi, long count) {
+    int[] probe = PROBE.get();
+    int n = stripes.length;
+    for (int attempt = 0; attempt < n; attempt++) {
+      int index = Math.floorMod(probe[0], n);
+      ReentrantLock lock = locks[index];
+      if (lock.tryLock()) {
+        try {
+          stripes[index].addHash(hashLow, hashHi, count);
+        } finally {
+          lock.unlock();
+        }
+        return;
+      }
+      probe[0]++;
+    }
+    int index = Math.floorMod(probe[0], n);
+    locks[index].lock();
+    try {
+      stripes[index].addHash(hashLow, hashHi, count);
+    } finally {
+      locks[index].unlock();
+    }
+  }
+
+  /**
+   * 估计key的计数
+   *
+   * @param key
+   * @return
+   */
+  public long estimate(CharSequence key) {
+    Number128 hash = CountMinSketch.hash(key);
+    return estimateHash(hash.getLowValue(), hash.getHiValue());
+  }
+
+  /**
+   * 使用已经计算好的hash128估计计数
+   *
+   * @param hashLow hash128的低64位
+   * @param hashHi hash128的高64位
+   * @return
+   */
+  public long estimateHash(long hashLow, long hashHi) {
+    long sum = 0;
+    for (CountMinSketch stripe : stripes) {
+      sum += stripe.estimateHash(hashLow, hashHi);
+    }
+    return sum;
+  }
+
+  /**
+   * 合并所有子sketch，得到单线程使用的快照。合并期间会依次锁住每个子sketch
+   *
+   * @return
+   */
+  public CountMinSketch snapshot() {
+    CountMinSketch merged = new CountMinSketch(stripes[0].width(), stripes[0].depth());
+    for (int i = 0; i < stripes.length; i++) {
+      locks[i].lock();
+      try {
+        merged.merge(stripes[i]);
+      } finally {
+        locks[i].unlock();
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * @return 所有key的计数总和
+   */
+  public long size() {
+    long sum = 0;
+    for (int i = 0; i < stripes.length; i++) {
+      locks[i].lock();
+      try {
+        sum += stripes[i].size();
+      } finally {
+        locks[i].unlock();
+      }
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,207 @@
+package com.github.rolandhe.hash;
+
+import com.github.rolandhe.hash.cityhash.CityHash;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 基于虚拟节点的一致性hash环，适用于有名称、可以随时加入和退出的节点。
+ * <ul>
+ *   <li>每个节点在环上有virtualNodes个点，第i个点是hash64WithSeed(node, i)</li>
+ *   <li>key路由到环上第一个不小于hash64(key)的点所属的节点，超过最后一个点时回到第一个点；
+ *   hash值按无符号64位比较，与c++等使用uint64的实现一致</li>
+ *   <li>多个点的hash相同时按节点名称排序，路由结果与节点加入的顺序无关</li>
+ * </ul>
+ * 环上的点保存在排序的long[]中，与所属节点的数组一一对应，查找使用二分法，不创建任何对象。
+ * 节点变化时复制出新的数组再整体替换，查找不需要加锁，总能看到某个完整版本的环。
+ *
+ */
+public class ConsistentHashRing {
+  public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+  private final int virtualNodes;
+  private final Hashable hashable;
+  private volatile Ring ring = new Ring(new long[0], new String[0], new String[0]);
+
+  public ConsistentHashRing() {
+    this(DEFAULT_VIRTUAL_NODES);
+  }
+
+  /**
+   * @param virtualNodes 每个节点在环上的点数
+   */
+  public ConsistentHashRing(int virtualNodes) {
+    this(virtualNodes, new CityHash());
+  }
+
+  /**
+   * @param virtualNodes 每个节点在环上的点数
+   * @param hashable 计算key与虚拟节点hash的算法
+   */
+  public ConsistentHashRing(int virtualNodes, Hashable hashable) {
+    if (virtualNodes <= 0) {
+      throw new IllegalArgumentException("virtualNodes must be positive: " + virtualNodes);
+    }
+    this.virtualNodes = virtualNodes;
+    this.hashable = Objects.requireNonNull(hashable);
+  }
+
+  /**
+   * 加入节点
+   *
+   * @param node
+   * @return 节点已经存在时返回false
+   */
+  public synchronized boolean addNode(String node) {
+    Ring current = ring;
+    int pos = Arrays.binarySearch(current.nodes, node);
+    if (pos >= 0) {
+      return false;
+    }
+    long[] added = new long[virtualNodes];
+    for (int i = 0; i < virtualNodes; i++) {
+      added[i] = flip(hashable.hash64WithSeed(node, i));
+    }
+    Arrays.sort(added);
+
+    long[] points = new long[current.points.length + virtualNodes];
+    String[] owners = new String[points.length];
+    int i = 0;
+    int j = 0;
+    for (int k = 0; k < points.length; k++) {
+      if (j == added.length
+              || (i < current.points.length && precedes(current.points[i], current.owners[i], added[j], node))) {
+        points[k] = current.points[i];
+        owners[k] = current.owners[i++];
+      } else {
+        points[k] = added[j++];
+        owners[k] = node;
+      }
+    }
+
+    int insert = -pos - 1;
+    String[] nodes = new String[current.nodes.length + 1];
+    System.arraycopy(current.nodes, 0, nodes, 0, insert);
+    nodes[insert] = node;
+    System.arraycopy(current.nodes, insert, nodes, insert + 1, current.nodes.length - insert);
+    ring = new Ring(points, owners, nodes);
+    return true;
+  }
+
+  /**
+   * 移除节点，原来路由到该节点的key会分散到其他节点，其他key不受影响
+   *
+   * @param node
+   * @return 节点不存在时返回false
+   */
+  public synchronized boolean removeNode(String node) {
+    Ring current = ring;
+    int pos = Arrays.binarySearch(current.nodes, node);
+    if (pos < 0) {
+      return false;
+    }
+    long[] points = new long[current.points.length - virtualNodes];
+    String[] owners = new String[points.length];
+    int k = 0;
+    for (int i = 0; i < current.points.length; i++) {
+      if (!current.owners[i].equals(node)) {
+        points[k] = current.points[i];
+        owners[k++] = current.owners[i];
+      }
+    }
+
+    String[] nodes = new String[current.nodes.length - 1];
+    System.arraycopy(current.nodes, 0, nodes, 0, pos);
+    System.arraycopy(current.nodes, pos + 1, nodes, pos, nodes.length - pos);
+    ring = new Ring(points, owners, nodes);
+    return true;
+  }
+
+  /**
+   * 计算key路由到的节点
+   *
+   * @param key
+   * @return 环上没有节点时返回null
+   */
+  public String route(String key) {
+    return route(hashable.hash64(key));
+  }
+
+  /**
+   * 根据key的hash计算路由到的节点，hash必须与构造时传入的算法的hash64结果一致
+   *
+   * @param keyHash
+   * @return 环上没有节点时返回null
+   */
+  public String route(long keyHash) {
+    Ring current = ring;
+    long[] points = current.points;
+    if (points.length == 0) {
+      return null;
+    }
+    long target = flip(keyHash);
+    int low = 0;
+    int high = points.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (points[mid] < target) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return current.owners[low == points.length ? 0 : low];
+  }
+
+  /**
+   * @return 按名称排序的当前所有节点
+   */
+  public List<String> nodes() {
+    return Collections.unmodifiableList(Arrays.asList(ring.nodes));
+  }
+
+  public int size() {
+    return ring.nodes.length;
+  }
+
+  /**
+   * 翻转符号位，使long的有符号顺序与原值的无符号顺序相同
+   *
+   * @param hash
+   * @return
+   */
+  private static long flip(long hash) {
+    return hash ^ Long.MIN_VALUE;
+  }
+
+  private static boolean precedes(long point, String owner, long otherPoint, String otherOwner) {
+    return point < otherPoint || (point == otherPoint && owner.compareTo(otherOwner) < 0);
+  }
+
+  /**
+   * 环的一个不可变版本
+   */
+  private static final class Ring {
+    /**
+     * 翻转符号位后排序的点
+     */
+    final long[] points;
+    /**
+     * points[i]所属的节点
+     */
+    final String[] owners;
+    /**
+     * 按名称排序的节点
+     */
+    final String[] nodes;
+
+    Ring(long[] points, String[] owners, String[] nodes) {
+      this.points = points;
+      this.owners = owners;
+      this.nodes = nodes;
+    }
+  }
+}
@@ -0,0 +1,224 @@
+package com.github.rolandhe.hash;
+
+import com.github.rolandhe.hash.cityhash.CityHash;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于内容的分块（FastCDC），用于多版本大文档的去重存储：插入或删除少量内容只影响附近的一两个块。
+ * <ul>
+ *   <li>Gear滚动hash：fp = (fp << 1) + GEAR[b]，fp的第k位只与最近k + 1个字节有关，边界判断使用fp的高位</li>
+ *   <li>每个块从起点跳过minSize字节再开始判断；avgSize之前使用多2位的掩码，之后使用少2位的掩码（归一化分块），
+ *   块长集中在avgSize附近；达到maxSize强制切分</li>
+ *   <li>边界只取决于块内的数据，同样的内容无论在文件的什么位置都得到同样的块</li>
+ *   <li>每个块用{@link CityHash}的hash128计算指纹，通过回调给出块的视图，不复制数据</li>
+ * </ul>
+ * GEAR表由CityHash的hash64(i)生成，固定不变，不同版本切出的块相同。
+ * 线程安全。
+ *
+ */
+public final class ContentChunker {
+  public static final int DEFAULT_MIN_SIZE = 2 * 1024;
+  public static final int DEFAULT_AVG_SIZE = 8 * 1024;
+  public static final int DEFAULT_MAX_SIZE = 64 * 1024;
+  private static final int DEFAULT_REGION_SIZE = 1 << 30;
+  private static final CityHash CITY_HASH = new CityHash();
+  private static final long[] GEAR = new long[256];
+
+  static {
+    for (int i = 0; i < GEAR.length; i++) {
+      GEAR[i] = CITY_HASH.hash64(i);
+    }
+  }
+
+  private final int minSize;
+  private final int avgSize;
+  private final int maxSize;
+  private final long maskSmall;
+  private final long maskLarge;
+  private final int regionSize;
+
+  public ContentChunker() {
+    this(DEFAULT_MIN_SIZE, DEFAULT_AVG_SIZE, DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * @param minSize 最小块长
+   * @param avgSize 平均块长，必须是2的幂，至少为64
+   * @param maxSize 最大块长
+   */
+  public ContentChunker(int minSize, int avgSize, int maxSize) {
+    this(minSize, avgSize, maxSize, DEFAULT_REGION_SIZE);
+  }
+
+  /**
+   * @param minSize 最小块长
+   * @param avgSize 平均块长，必须是2的幂，至少为64
+   * @param maxSize 最大块长
+   * @param regionSize 分块文件时每次映射的最大字节数，测试使用
+   */
+  ContentChunker(int minSize, int avgSize, int maxSize, int regionSize) {
+    if (avgSize < 64 || Integer.bitCount(avgSize) != 1) {
+      throw new IllegalArgumentException("avgSize must be a power of 2 and at least 64: " + avgSize);
+    }
+    if (minSize <= 0 || minSize > avgSize || maxSize < avgSize) {
+      throw new IllegalArgumentException("require 0 < minSize <= avgSize <= maxSize: " + minSize + ", " + avgSize
+              + ", " + maxSize);
+    }
+    int bits = Integer.numberOfTrailingZeros(avgSize);
+    this.minSize = minSize;
+    this.avgSize = avgSize;
+    this.maxSize = maxSize;
+    this.maskSmall = -1L << (64 - (bits + 2));
+    this.maskLarge = -1L << (64 - (bits - 2));
+    this.regionSize = Math.max(regionSize, maxSize);
+  }
+
+  /**
+   * 分块bytes[offset, offset + length)
+   *
+   * @param bytes
+   * @param offset
+   * @param length
+   * @param listener 块的offset相对于bytes的下标0
+   */
+  public void chunk(byte[] bytes, int offset, int length, ChunkListener listener) {
+    if (offset < 0 || length < 0 || offset > bytes.length - length) {
+      throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + bytes.length);
+    }
+    ByteBuffer view = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    Number128 hash = new Number128(0L, 0L);
+    int end = offset + length;
+    for (int start = offset; start < end; ) {
+      int chunkLength = cut(bytes, start, end);
+      CITY_HASH.hash128(bytes, start, chunkLength, hash);
+      view.limit(start + chunkLength).position(start);
+      listener.onChunk(start, view, hash.getLowValue(), hash.getHiValue());
+      start += chunkLength;
+    }
+  }
+
+  /**
+   * 分块buffer的position到limit之间的内容，不改变buffer的position与limit
+   *
+   * @param buffer
+   * @param listener 块的offset相对于buffer的position
+   */
+  public void chunk(ByteBuffer buffer, ChunkListener listener) {
+    scan(buffer.slice(), 0, true, new Number128(0L, 0L), listener);
+  }
+
+  /**
+   * 以只读映射的方式分块文件，每次映射不超过1G，块不会跨越两次映射
+   *
+   * @param file
+   * @param listener 块的offset是在文件中的位置
+   * @throws IOException
+   */
+  public void chunk(Path file, ChunkListener listener) throws IOException {
+    Number128 hash = new Number128(0L, 0L);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long position = 0;
+      while (position < size) {
+        long length = Math.min(regionSize, size - position);
+        ByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        position += scan(region, position, position + length == size, hash, listener);
+      }
+    }
+  }
+
+  /**
+   * 按块依次处理region，不是最后一段时剩余不足maxSize的部分留给下一次映射
+   *
+   * @return 已经处理的字节数
+   */
+  private int scan(ByteBuffer region, long base, boolean last, Number128 hash, ChunkListener listener) {
+    // 只读的视图没有array()，hash使用可写的副本，堆内的buffer也能走数组的快速路径
+    ByteBuffer source = region.duplicate();
+    ByteBuffer view = region.asReadOnlyBuffer();
+    int end = region.limit();
+    int start = 0;
+    while (start < end && (last || end - start >= maxSize)) {
+      int chunkLength = cut(region, start, end);
+      source.limit(start + chunkLength).position(start);
+      CITY_HASH.hash128(source, hash);
+      view.limit(start + chunkLength).position(start);
+      listener.onChunk(base + start, view, hash.getLowValue(), hash.getHiValue());
+      start += chunkLength;
+    }
+    return start;
+  }
+
+  /**
+   * @return 从start开始的块长
+   */
+  int cut(byte[] bytes, int start, int end) {
+    int n = end - start;
+    if (n <= minSize) {
+      return n;
+    }
+    n = Math.min(n, maxSize);
+    int normal = Math.min(n, avgSize);
+    long fp = 0;
+    int i = minSize;
+    for (; i < normal; i++) {
+      fp = (fp << 1) + GEAR[bytes[start + i] & 0xff];
+      if ((fp & maskSmall) == 0) {
+        return i + 1;
+      }
+    }
+    for (; i < n; i++) {
+      fp = (fp << 1) + GEAR[bytes[start + i] & 0xff];
+      if ((fp & maskLarge) == 0) {
+        return i + 1;
+      }
+    }
+    return n;
+  }
+
+  /**
+   * @return 从start开始的块长
+   */
+  int cut(ByteBuffer buffer, int start, int end) {
+    int n = end - start;
+    if (n <= minSize) {
+      return n;
+    }
+    n = Math.min(n, maxSize);
+    int normal = Math.min(n, avgSize);
+    long fp = 0;
+    int i = minSize;
+    for (; i < normal; i++) {
+      fp = (fp << 1) + GEAR[buffer.get(start + i) & 0xff];
+      if ((fp & maskSmall) == 0) {
+        return i + 1;
+      }
+    }
+    for (; i < n; i++) {
+      fp = (fp << 1) + GEAR[buffer.get(start + i) & 0xff];
+      if ((fp & maskLarge) == 0) {
+        return i + 1;
+      }
+    }
+    return n;
+  }
+
+  /**
+   * 接收每个块
+   */
+  @FunctionalInterface
+  public interface ChunkListener {
+    /**
+     * @param offset 块的起始位置
+     * @param chunk 只读视图，position到limit是块的内容；回调返回后会被复用，需要保存时复制
+     * @param hashLow 块内容hash128的低64位
+     * @param hashHi 块内容hash128的高64位
+     */
+    void onChunk(long offset, ByteBuffer chunk, long hashLow, long hashHi);
+  }
+}
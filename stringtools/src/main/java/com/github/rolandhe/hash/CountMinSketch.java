@@ -0,0 +1,205 @@
+package com.github.rolandhe.hash;
+
+import com.github.rolandhe.hash.cityhash.CityHash;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Count-Min sketch，固定内存的近似频率统计，估计值不会小于真实值。
+ * <ul>
+ *   <li>depth行、每行width列的计数保存在一个扁平的long[]中</li>
+ *   <li>每个key只计算一次{@link CityHash}的hash128，第i行的列由(low + i * hi)的高位决定</li>
+ *   <li>使用conservative update：只把小于(当前估计值 + count)的计数提高到该值，误差比逐行累加小得多</li>
+ * </ul>
+ * 非线程安全，多线程使用{@link ConcurrentCountMinSketch}。
+ *
+ */
+public class CountMinSketch {
+  private static final VarHandle CELL = MethodHandles.arrayElementVarHandle(long[].class);
+  private static final CityHash CITY_HASH = new CityHash();
+  private static final ThreadLocal<Number128> HASH = ThreadLocal.withInitial(() -> new Number128(0L, 0L));
+
+  private final int width;
+  private final int depth;
+  private final int shift;
+  private final long[] table;
+  private long size;
+
+  /**
+   * @param width 每行的列数，必须是2的幂，至少为2
+   * @param depth 行数，[1, 64]之间
+   */
+  public CountMinSketch(int width, int depth) {
+    if (width < 2 || Integer.bitCount(width) != 1) {
+      throw new IllegalArgumentException("width must be a power of 2 and at least 2: " + width);
+    }
+    if (depth < 1 || depth > 64) {
+      throw new IllegalArgumentException("depth must be in [1, 64]: " + depth);
+    }
+    if ((long) width * depth > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("width * depth is too large: " + width + " * " + depth);
+    }
+    this.width = width;
+    this.depth = depth;
+    this.shift = 64 - Integer.numberOfTrailingZeros(width);
+    this.table = new long[width * depth];
+  }
+
+  /**
+   * 按误差范围创建：估计值超过真实值epsilon * 总数的概率不超过delta
+   *
+   * @param epsilon 相对于总数的误差
+   * @param delta 超出误差的概率
+   * @return
+   */
+  public static CountMinSketch withError(double epsilon, double delta) {
+    return new CountMinSketch(widthFor(epsilon), depthFor(delta));
+  }
+
+  public long add(CharSequence key) {
+    return add(key, 1);
+  }
+
+  /**
+   * 增加key的计数，key按UTF-8编码后计算hash
+   *
+   * @param key
+   * @param count 不能是负数
+   * @return 增加后key的估计值
+   */
+  public long add(CharSequence key, long count) {
+    Number128 hash = hash(key);
+    return addHash(hash.getLowValue(), hash.getHiValue(), count);
+  }
+
+  public long add(byte[] bytes, int offset, int length, long count) {
+    Number128 hash = HASH.get();
+    CITY_HASH.hash128(bytes, offset, length, hash);
+    return addHash(hash.getLowValue(), hash.getHiValue(), count);
+  }
+
+  /**
+   * 使用已经计算好的hash128增加计数
+   *
+   * @param hashLow hash128的低64位
+   * @param hashHi hash128的高64位
+   * @param count 不能是负数
+   * @return 增加后key的估计值
+   */
+  public long addHash(long hashLow, long hashHi, long count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("count must not be negative: " + count);
+    }
+    long target = estimateHash(hashLow, hashHi) + count;
+    long combined = hashLow;
+    for (int i = 0; i < depth; i++) {
+      int index = i * width + (int) (combined >>> shift);
+      if ((long) CELL.getOpaque(table, index) < target) {
+        CELL.setOpaque(table, index, target);
+      }
+      combined += hashHi;
+    }
+    size += count;
+    return target;
+  }
+
+  /**
+   * 估计key的计数
+   *
+   * @param key
+   * @return 不小于真实值
+   */
+  public long estimate(CharSequence key) {
+    Number128 hash = hash(key);
+    return estimateHash(hash.getLowValue(), hash.getHiValue());
+  }
+
+  public long estimate(byte[] bytes, int offset, int length) {
+    Number128 hash = HASH.get();
+    CITY_HASH.hash128(bytes, offset, length, hash);
+    return estimateHash(hash.getLowValue(), hash.getHiValue());
+  }
+
+  /**
+   * 使用已经计算好的hash128估计计数。
+   * 计数使用opaque方式读写，{@link ConcurrentCountMinSketch}可以在其他线程更新的同时读取
+   *
+   * @param hashLow hash128的低64位
+   * @param hashHi hash128的高64位
+   * @return
+   */
+  public long estimateHash(long hashLow, long hashHi) {
+    long min = Long.MAX_VALUE;
+    long combined = hashLow;
+    for (int i = 0; i < depth; i++) {
+      min = Math.min(min, (long) CELL.getOpaque(table, i * width + (int) (combined >>> shift)));
+      combined += hashHi;
+    }
+    return min;
+  }
+
+  /**
+   * 把other的计数累加到当前对象，两者的width、depth必须相同，合并后的估计值仍不小于真实值
+   *
+   * @param other
+   */
+  public void merge(CountMinSketch other) {
+    if (other.width != width || other.depth != depth) {
+      throw new IllegalArgumentException("shape mismatch: " + width + "x" + depth + " vs " + other.width + "x"
+              + other.depth);
+    }
+    for (int i = 0; i < table.length; i++) {
+      table[i] += other.table[i];
+    }
+    size += other.size;
+  }
+
+  /**
+   * @return 所有key的计数总和
+   */
+  public long size() {
+    return size;
+  }
+
+  public int width() {
+    return width;
+  }
+
+  public int depth() {
+    return depth;
+  }
+
+  static Number128 hash(CharSequence key) {
+    Number128 hash = HASH.get();
+    CITY_HASH.hash128(key, hash);
+    return hash;
+  }
+
+  /**
+   * width = e / epsilon，向上取整到2的幂
+   *
+   * @param epsilon
+   * @return
+   */
+  static int widthFor(double epsilon) {
+    if (!(epsilon > 0 && epsilon < 1)) {
+      throw new IllegalArgumentException("epsilon must be in (0, 1): " + epsilon);
+    }
+    long width = (long) Math.ceil(Math.E / epsilon);
+    return (int) Math.min(1 << 30, Math.max(2, Long.highestOneBit(width - 1) << 1));
+  }
+
+  /**
+   * depth = ln(1 / delta)，向上取整
+   *
+   * @param delta
+   * @return
+   */
+  static int depthFor(double delta) {
+    if (!(delta > 0 && delta < 1)) {
+      throw new IllegalArgumentException("delta must be in (0, 1): " + delta);
+    }
+    return (int) Math.min(64, Math.max(1, Math.ceil(Math.log(1 / delta))));
+  }
+}
@@ -0,0 +1,303 @@
+package com.github.rolandhe.hash;
+
+import com.github.rolandhe.hash.cityhash.CityHash;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * 支持删除的cuckoo过滤器，适合元素会过期的成员集合。
+ * <ul>
+ *   <li>每个key只计算一次{@link CityHash}的hash64：高16位是指纹（0表示空位，指纹为0时用1代替），低位是第一个桶</li>
+ *   <li>第二个桶是第一个桶异或指纹的hash，两个桶可以互相推出，搬迁时不需要原始的key</li>
+ *   <li>每个桶4个16位指纹，正好是long[]中的一个long，查找时按位并行比较4个指纹</li>
+ *   <li>插入失败（两个桶都满）时随机踢出，踢出路径最多MAX_KICKS步；先找出完整的路径再从空位开始倒着搬迁，
+ *   每一步都先写入目标再覆盖来源，指纹在任何时刻至少存在于一个桶中，找不到路径时过滤器不变</li>
+ * </ul>
+ * 写操作（put、remove）串行执行，mightContain不加锁，可以与写操作并发。指纹从第二个桶搬回第一个桶时，
+ * 先读第一个桶、后读第二个桶的查找可能两边都错过，所以搬迁前后各递增一次version（seqlock），
+ * 查找未命中且version有变化时重试，命中时直接返回。
+ * 只能删除确实插入过的key，否则可能删掉其他key的指纹。
+ *
+ */
+public class CuckooFilter {
+  public static final int SLOTS = 4;
+  public static final int MAX_KICKS = 500;
+  /**
+   * 每个桶4个指纹时可以达到的装载率
+   */
+  static final double MAX_LOAD = 0.95;
+  private static final VarHandle BUCKET = MethodHandles.arrayElementVarHandle(long[].class);
+  private static final CityHash CITY_HASH = new CityHash();
+  private static final long LANES = 0x0001000100010001L;
+  private static final long HIGH_BITS = 0x8000800080008000L;
+
+  private final long[] buckets;
+  private final int mask;
+  private int size;
+  /**
+   * 搬迁期间为奇数
+   */
+  private volatile long version;
+  private long random = 0x9e3779b97f4a7c15L;
+  /**
+   * 踢出路径：桶与槽位，复用避免每次插入创建数组
+   */
+  private final int[] pathBuckets = new int[MAX_KICKS];
+  private final int[] pathSlots = new int[MAX_KICKS];
+  private final long[] pathFingerprints = new long[MAX_KICKS];
+
+  /**
+   * @param numBuckets 桶数，必须是2的幂
+   */
+  CuckooFilter(int numBuckets) {
+    if (numBuckets < 2 || Integer.bitCount(numBuckets) != 1) {
+      throw new IllegalArgumentException("numBuckets must be a power of 2 and at least 2: " + numBuckets);
+    }
+    this.buckets = new long[numBuckets];
+    this.mask = numBuckets - 1;
+  }
+
+  /**
+   * 按预计的元素个数创建，装载率达到95%之前插入基本不会失败
+   *
+   * @param expectedItems 预计的元素个数
+   * @return
+   */
+  public static CuckooFilter create(long expectedItems) {
+    if (expectedItems <= 0) {
+      throw new IllegalArgumentException("expectedItems must be positive: " + expectedItems);
+    }
+    long needed = (long) Math.ceil(expectedItems / MAX_LOAD / SLOTS);
+    if (needed > 1 << 30) {
+      throw new IllegalArgumentException("expectedItems is too large: " + expectedItems);
+    }
+    return new CuckooFilter(Math.max(2, Integer.highestOneBit((int) Math.max(1, needed * 2 - 1))));
+  }
+
+  public boolean put(CharSequence key) {
+    return putHash(CITY_HASH.hash64(key));
+  }
+
+  public boolean put(byte[] bytes, int offset, int length) {
+    return putHash(CITY_HASH.hash64(bytes, offset, length));
+  }
+
+  /**
+   * 使用已经计算好的hash64插入，重复插入同一个key会保存多份指纹
+   *
+   * @param hash
+   * @return 过滤器已满、找不到踢出路径时返回false
+   */
+  public synchronized boolean putHash(long hash) {
+    long fingerprint = fingerprint(hash);
+    int first = index(hash);
+    int second = alternate(first, fingerprint);
+    if (insertEmpty(first, fingerprint) || insertEmpty(second, fingerprint)) {
+      size++;
+      return true;
+    }
+    int length = findPath(nextRandom() < 0 ? first : second);
+    if (length < 0) {
+      return false;
+    }
+    // 从空位开始倒着搬迁：先把路径末尾的指纹写入空位，再依次覆盖已经有副本的槽位
+    long current = version;
+    version = current + 1;
+    for (int i = length - 1; i >= 0; i--) {
+      long moving = pathFingerprints[i];
+      int target = alternate(pathBuckets[i], moving);
+      if (i == length - 1) {
+        insertEmpty(target, moving);
+      } else {
+        write(pathBuckets[i + 1], pathSlots[i + 1], moving);
+      }
+    }
+    write(pathBuckets[0], pathSlots[0], fingerprint);
+    version = current + 2;
+    size++;
+    return true;
+  }
+
+  public boolean mightContain(CharSequence key) {
+    return mightContainHash(CITY_HASH.hash64(key));
+  }
+
+  public boolean mightContain(byte[] bytes, int offset, int length) {
+    return mightContainHash(CITY_HASH.hash64(bytes, offset, length));
+  }
+
+  /**
+   * 使用已经计算好的hash64查找，不加锁
+   *
+   * @param hash
+   * @return
+   */
+  public boolean mightContainHash(long hash) {
+    long fingerprint = fingerprint(hash);
+    int first = index(hash);
+    int second = alternate(first, fingerprint);
+    long lanes = fingerprint * LANES;
+    while (true) {
+      long current = version;
+      if (hasLane((long) BUCKET.getAcquire(buckets, first), lanes)
+              || hasLane((long) BUCKET.getAcquire(buckets, second), lanes)) {
+        return true;
+      }
+      if ((current & 1) == 0 && version == current) {
+        return false;
+      }
+      Thread.onSpinWait();
+    }
+  }
+
+  public boolean remove(CharSequence key) {
+    return removeHash(CITY_HASH.hash64(key));
+  }
+
+  public boolean remove(byte[] bytes, int offset, int length) {
+    return removeHash(CITY_HASH.hash64(bytes, offset, length));
+  }
+
+  /**
+   * 删除一份指纹
+   *
+   * @param hash
+   * @return 两个桶中都没有该指纹时返回false
+   */
+  public synchronized boolean removeHash(long hash) {
+    long fingerprint = fingerprint(hash);
+    int first = index(hash);
+    if (removeFrom(first, fingerprint) || removeFrom(alternate(first, fingerprint), fingerprint)) {
+      size--;
+      return true;
+    }
+    return false;
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * @return 能保存的指纹数
+   */
+  public long capacity() {
+    return (long) buckets.length * SLOTS;
+  }
+
+  /**
+   * @return 当前的装载率
+   */
+  public synchronized double load() {
+    return (double) size / capacity();
+  }
+
+  /**
+   * 误判率的上界：每次查找比较2 * SLOTS个指纹，每个指纹相同的概率是1 / 2^16
+   *
+   * @return
+   */
+  public synchronized double expectedFpp() {
+    return 2.0 * SLOTS * load() / 65535;
+  }
+
+  static long fingerprint(long hash) {
+    long fingerprint = hash >>> 48;
+    return fingerprint == 0 ? 1 : fingerprint;
+  }
+
+  private int index(long hash) {
+    return (int) hash & mask;
+  }
+
+  private int alternate(int bucket, long fingerprint) {
+    return (bucket ^ (int) ((fingerprint * 0xc6a4a7935bd1e995L) >>> 32)) & mask;
+  }
+
+  /**
+   * word的4个16位中是否有等于lanes中指纹的：异或后检查是否有为0的16位
+   */
+  private static boolean hasLane(long word, long lanes) {
+    long x = word ^ lanes;
+    return ((x - LANES) & ~x & HIGH_BITS) != 0;
+  }
+
+  private boolean insertEmpty(int bucket, long fingerprint) {
+    long word = buckets[bucket];
+    for (int slot = 0; slot < SLOTS; slot++) {
+      if (((word >>> (slot * 16)) & 0xffff) == 0) {
+        BUCKET.setRelease(buckets, bucket, word | (fingerprint << (slot * 16)));
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean removeFrom(int bucket, long fingerprint) {
+    long word = buckets[bucket];
+    for (int slot = 0; slot < SLOTS; slot++) {
+      if (((word >>> (slot * 16)) & 0xffff) == fingerprint) {
+        BUCKET.setRelease(buckets, bucket, word & ~(0xffffL << (slot * 16)));
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void write(int bucket, int slot, long fingerprint) {
+    long word = buckets[bucket] & ~(0xffffL << (slot * 16));
+    BUCKET.setRelease(buckets, bucket, word | (fingerprint << (slot * 16)));
+  }
+
+  /**
+   * 不修改过滤器，从bucket开始随机选择槽位向外踢，直到某个指纹的另一个桶有空位。
+   * 路径上的槽位互不相同，倒着搬迁时每个被覆盖的指纹都已经有了副本
+   *
+   * @return 路径长度，找不到时返回-1
+   */
+  private int findPath(int bucket) {
+    for (int step = 0; step < MAX_KICKS; step++) {
+      int slot = unusedSlot(bucket, step);
+      if (slot < 0) {
+        return -1;
+      }
+      long victim = (buckets[bucket] >>> (slot * 16)) & 0xffff;
+      pathBuckets[step] = bucket;
+      pathSlots[step] = slot;
+      pathFingerprints[step] = victim;
+      bucket = alternate(bucket, victim);
+      if (hasEmpty(bucket)) {
+        return step + 1;
+      }
+    }
+    return -1;
+  }
+
+  private int unusedSlot(int bucket, int step) {
+    int start = (int) (nextRandom() >>> 62);
+    for (int k = 0; k < SLOTS; k++) {
+      int slot = (start + k) & (SLOTS - 1);
+      boolean used = false;
+      for (int i = 0; i < step && !used; i++) {
+        used = pathBuckets[i] == bucket && pathSlots[i] == slot;
+      }
+      if (!used) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  private boolean hasEmpty(int bucket) {
+    long word = buckets[bucket];
+    return ((word - LANES) & ~word & HIGH_BITS) != 0;
+  }
+
+  private long nextRandom() {
+    random ^= random << 13;
+    random ^= random >>> 7;
+    random ^= random << 17;
+    return random;
+  }
+}
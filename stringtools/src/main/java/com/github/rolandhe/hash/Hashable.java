@@ -1,14 +1,42 @@
 package com.github.rolandhe.hash;
 
+import java.nio.ByteBuffer;
+
 /**
  * Created by hexiufeng on 2017/6/8.
+ *
+ * String参数按UTF-8编码后hash；byte[]参数hash [offset, offset + length)区间；
+ * ByteBuffer参数hash [position, limit)区间，不改变buffer的position。
+ * int、long参数按小端转换成4、8字节，多个long按顺序拼接。
+ * 相同字节序列无论以哪种形式传入，结果都相同。
  */
 public interface Hashable {
   int hash32(String raw);
+  int hash32(byte[] bytes, int offset, int length);
+  int hash32(ByteBuffer buffer);
+  int hash32(int value);
+
   long hash64(String raw);
+  long hash64(byte[] bytes, int offset, int length);
+  long hash64(ByteBuffer buffer);
+  long hash64(long value);
+  long hash64(long value0, long value1);
+  long hash64(long[] values);
+
   long hash64WithSeeds(String raw, long seed0, long seed1);
+  long hash64WithSeeds(byte[] bytes, int offset, int length, long seed0, long seed1);
+  long hash64WithSeeds(ByteBuffer buffer, long seed0, long seed1);
+
   long hash64WithSeed(String raw, long seed);
+  long hash64WithSeed(byte[] bytes, int offset, int length, long seed);
+  long hash64WithSeed(ByteBuffer buffer, long seed);
+
   Number128 hash128(String raw);
+  Number128 hash128(byte[] bytes, int offset, int length);
+  Number128 hash128(ByteBuffer buffer);
+
   Number128 hash128WithSeed(String raw, final Number128 seed);
+  Number128 hash128WithSeed(byte[] bytes, int offset, int length, final Number128 seed);
+  Number128 hash128WithSeed(ByteBuffer buffer, final Number128 seed);
 
 }
@@ -0,0 +1,196 @@
+package com.github.rolandhe.hash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于{@link ConcurrentCountMinSketch}的top-K高频key统计，线程安全。
+ * <ul>
+ *   <li>所有key的计数记录在sketch中，只有估计值最大的k个key保存在最小堆里</li>
+ *   <li>估计值不超过堆顶时直接返回，不加锁；大部分key都走这条路径，只有高频key才会进入同步块</li>
+ *   <li>key只计算一次hash128，记录与估计共用</li>
+ * </ul>
+ * 计数是sketch的估计值，不小于真实值。
+ *
+ */
+public class HeavyHitters {
+  private final int k;
+  private final ConcurrentCountMinSketch sketch;
+  private final String[] keys;
+  private final long[] counts;
+  private final Map<String, Integer> positions;
+  private int size;
+  /**
+   * 堆满后为堆顶的计数，估计值不超过它的key不会进入堆
+   */
+  private volatile long threshold;
+
+  /**
+   * @param k 保留的key数量
+   * @param width sketch每行的列数，必须是2的幂
+   * @param depth sketch的行数
+   */
+  public HeavyHitters(int k, int width, int depth) {
+    this(k, new ConcurrentCountMinSketch(width, depth));
+  }
+
+  /**
+   * @param k 保留的key数量
+   * @param sketch 记录计数的sketch
+   */
+  public HeavyHitters(int k, ConcurrentCountMinSketch sketch) {
+    if (k <= 0) {
+      throw new IllegalArgumentException("k must be positive: " + k);
+    }
+    this.k = k;
+    this.sketch = sketch;
+    this.keys = new String[k];
+    this.counts = new long[k];
+    this.positions = new HashMap<>(k * 2);
+  }
+
+  public void add(String key) {
+    add(key, 1);
+  }
+
+  /**
+   * 增加key的计数
+   *
+   * @param key
+   * @param count 不能是负数
+   */
+  public void add(String key, long count) {
+    Number128 hash = CountMinSketch.hash(key);
+    long low = hash.getLowValue();
+    long hi = hash.getHiValue();
+    sketch.addHash(low, hi, count);
+    long estimate = sketch.estimateHash(low, hi);
+    if (estimate <= threshold) {
+      return;
+    }
+    synchronized (this) {
+      offer(key, estimate);
+    }
+  }
+
+  /**
+   * 估计key的计数
+   *
+   * @param key
+   * @return
+   */
+  public long estimate(CharSequence key) {
+    return sketch.estimate(key);
+  }
+
+  /**
+   * @return 按计数从大到小排序的高频key，计数相同时按key排序
+   */
+  public synchronized List<Item> top() {
+    Item[] items = new Item[size];
+    for (int i = 0; i < size; i++) {
+      items[i] = new Item(keys[i], counts[i]);
+    }
+    Arrays.sort(items, (a, b) -> a.count != b.count ? Long.compare(b.count, a.count) : a.key.compareTo(b.key));
+    return Collections.unmodifiableList(new ArrayList<>(Arrays.asList(items)));
+  }
+
+  public ConcurrentCountMinSketch sketch() {
+    return sketch;
+  }
+
+  private void offer(String key, long estimate) {
+    Integer pos = positions.get(key);
+    if (pos != null) {
+      if (estimate > counts[pos]) {
+        counts[pos] = estimate;
+        siftDown(pos);
+      }
+    } else if (size < k) {
+      keys[size] = key;
+      counts[size] = estimate;
+      positions.put(key, size);
+      siftUp(size++);
+    } else if (estimate > counts[0]) {
+      positions.remove(keys[0]);
+      keys[0] = key;
+      counts[0] = estimate;
+      positions.put(key, 0);
+      siftDown(0);
+    } else {
+      return;
+    }
+    if (size == k) {
+      threshold = counts[0];
+    }
+  }
+
+  private void siftUp(int pos) {
+    while (pos > 0) {
+      int parent = (pos - 1) >>> 1;
+      if (counts[parent] <= counts[pos]) {
+        break;
+      }
+      swap(parent, pos);
+      pos = parent;
+    }
+  }
+
+  private void siftDown(int pos) {
+    while (true) {
+      int child = pos * 2 + 1;
+      if (child >= size) {
+        return;
+      }
+      if (child + 1 < size && counts[child + 1] < counts[child]) {
+        child++;
+      }
+      if (counts[pos] <= counts[child]) {
+        return;
+      }
+      swap(pos, child);
+      pos = child;
+    }
+  }
+
+  private void swap(int i, int j) {
+    String key = keys[i];
+    long count = counts[i];
+    keys[i] = keys[j];
+    counts[i] = counts[j];
+    keys[j] = key;
+    counts[j] = count;
+    positions.put(keys[i], i);
+    positions.put(keys[j], j);
+  }
+
+  /**
+   * 高频key及其估计计数
+   */
+  public static final class Item {
+    private final String key;
+    private final long count;
+
+    Item(String key, long count) {
+      this.key = key;
+      this.count = count;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    @Override
+    public String toString() {
+      return key + "=" + count;
+    }
+  }
+}
@@ -0,0 +1,457 @@
+package com.github.rolandhe.hash;
+
+import com.github.rolandhe.hash.cityhash.CityHash;
+
+import java.util.Arrays;
+
+/**
+ * 基于{@link CityHash#hash64}的HyperLogLog++基数估计，精度p时标准误差约为1.04 / sqrt(2^p)。
+ * <ul>
+ *   <li>基数较小时使用稀疏表示：以25位精度记录出现过的位置，按linear counting估计，误差远小于稠密表示；
+ *   稀疏表示占用的内存超过稠密表示时自动转换</li>
+ *   <li>稠密表示每个寄存器一个字节，更新只有一次移位、一次比较，可以在每个事件上直接执行</li>
+ *   <li>稠密表示使用Ertl的改进估计(New cardinality estimation algorithms for HyperLogLog sketches, 2017)，
+ *   无需HLL++的经验偏差表，全部基数范围内都是无偏的</li>
+ *   <li>合并到稠密表示时逐个寄存器取最大值，不创建对象</li>
+ *   <li>{@link #toByteArray()}输出紧凑格式：稀疏表示按差值的varint编码，稠密表示每个寄存器6位，
+ *   不同节点的结果可以用{@link #fromByteArray(byte[])}恢复后合并</li>
+ * </ul>
+ * 非线程安全。
+ *
+ */
+public class HyperLogLog {
+  public static final int DEFAULT_PRECISION = 14;
+  public static final int MIN_PRECISION = 4;
+  public static final int MAX_PRECISION = 18;
+
+  private static final int SERIAL_VERSION = 1;
+  private static final int SPARSE = 0;
+  private static final int DENSE = 1;
+  /**
+   * 稀疏表示的精度
+   */
+  private static final int SPARSE_PRECISION = 25;
+  /**
+   * 稀疏表示的元素先放入该大小的缓冲区，满了之后排序合并
+   */
+  private static final int BUFFER_SIZE = 256;
+  private static final CityHash CITY_HASH = new CityHash();
+
+  private final int p;
+  private final int m;
+
+  /**
+   * 稠密表示的寄存器，为null时使用稀疏表示
+   */
+  private byte[] registers;
+  /**
+   * 稀疏表示：按位置排序、位置不重复的元素，元素为(25位精度的位置 << 6) | rho
+   */
+  private int[] sparse;
+  private int sparseSize;
+  /**
+   * 合并时使用的另一个数组，与sparse交替使用
+   */
+  private int[] spare;
+  /**
+   * 尚未合并到sparse中的元素，无序、可能重复
+   */
+  private int[] buffer;
+  private int bufferSize;
+
+  public HyperLogLog() {
+    this(DEFAULT_PRECISION);
+  }
+
+  /**
+   * @param precision 使用2^precision个寄存器，[4, 18]之间
+   */
+  public HyperLogLog(int precision) {
+    if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+      throw new IllegalArgumentException("precision must be in [" + MIN_PRECISION + ", " + MAX_PRECISION + "]: "
+              + precision);
+    }
+    this.p = precision;
+    this.m = 1 << precision;
+    this.sparse = new int[0];
+    this.spare = new int[0];
+    this.buffer = new int[Math.min(BUFFER_SIZE, sparseLimit())];
+  }
+
+  /**
+   * 加入key，key按UTF-8编码后计算hash64
+   *
+   * @param key
+   */
+  public void add(CharSequence key) {
+    addHash(CITY_HASH.hash64(key));
+  }
+
+  public void add(byte[] bytes, int offset, int length) {
+    addHash(CITY_HASH.hash64(bytes, offset, length));
+  }
+
+  /**
+   * 加入long，按{@link CityHash#hash64(long)}计算hash
+   *
+   * @param value
+   */
+  public void add(long value) {
+    addHash(CITY_HASH.hash64(value));
+  }
+
+  /**
+   * 直接加入已经计算好的64位hash
+   *
+   * @param hash
+   */
+  public void addHash(long hash) {
+    if (registers != null) {
+      int index = (int) (hash >>> (64 - p));
+      // 最低位补1，剩余的64 - p位全是0时rho为65 - p
+      byte rho = (byte) (Long.numberOfLeadingZeros((hash << p) | (1L << (p - 1))) + 1);
+      if (rho > registers[index]) {
+        registers[index] = rho;
+      }
+      return;
+    }
+    int index = (int) (hash >>> (64 - SPARSE_PRECISION));
+    int rho = Long.numberOfLeadingZeros((hash << SPARSE_PRECISION) | (1L << (SPARSE_PRECISION - 1))) + 1;
+    addSparse((index << 6) | rho);
+  }
+
+  /**
+   * 估计加入过的不同元素个数
+   *
+   * @return
+   */
+  public long cardinality() {
+    if (registers == null) {
+      flushBuffer();
+      if (registers == null) {
+        // linear counting
+        double sparseM = 1 << SPARSE_PRECISION;
+        return Math.round(sparseM * Math.log(sparseM / (sparseM - sparseSize)));
+      }
+    }
+    int q = 64 - p;
+    int[] histogram = new int[q + 2];
+    for (byte register : registers) {
+      histogram[register]++;
+    }
+    double z = m * tau(1 - (double) histogram[q + 1] / m);
+    for (int k = q; k >= 1; k--) {
+      z += histogram[k];
+      z *= 0.5;
+    }
+    z += m * sigma((double) histogram[0] / m);
+    return Math.round(m / (2 * Math.log(2)) * m / z);
+  }
+
+  /**
+   * 把other合并到当前对象，other不变。两者的精度必须相同。
+   * 合并到稠密表示时不创建对象
+   *
+   * @param other
+   */
+  public void merge(HyperLogLog other) {
+    if (other.p != p) {
+      throw new IllegalArgumentException("precision mismatch: " + p + " vs " + other.p);
+    }
+    if (other == this) {
+      return;
+    }
+    if (other.registers != null) {
+      if (registers == null) {
+        toDense();
+      }
+      for (int i = 0; i < m; i++) {
+        if (other.registers[i] > registers[i]) {
+          registers[i] = other.registers[i];
+        }
+      }
+      return;
+    }
+    for (int i = 0; i < other.sparseSize; i++) {
+      mergeEncoded(other.sparse[i]);
+    }
+    for (int i = 0; i < other.bufferSize; i++) {
+      mergeEncoded(other.buffer[i]);
+    }
+  }
+
+  /**
+   * 紧凑的序列化格式：版本、精度、表示方式各一个字节，之后是稀疏元素的差值varint编码，或每个寄存器6位的稠密数据
+   *
+   * @return
+   */
+  public byte[] toByteArray() {
+    flushBuffer();
+    if (registers == null) {
+      byte[] bytes = new byte[8 + sparseSize * 5];
+      int pos = writeHeader(bytes, SPARSE);
+      pos = writeVarint(bytes, pos, sparseSize);
+      int previous = 0;
+      for (int i = 0; i < sparseSize; i++) {
+        pos = writeVarint(bytes, pos, sparse[i] - previous);
+        previous = sparse[i];
+      }
+      return Arrays.copyOf(bytes, pos);
+    }
+    byte[] bytes = new byte[3 + (m * 6 + 7) / 8];
+    int pos = writeHeader(bytes, DENSE);
+    long bits = 0;
+    int bitCount = 0;
+    for (int i = 0; i < m; i++) {
+      bits |= (long) registers[i] << bitCount;
+      bitCount += 6;
+      while (bitCount >= 8) {
+        bytes[pos++] = (byte) bits;
+        bits >>>= 8;
+        bitCount -= 8;
+      }
+    }
+    if (bitCount > 0) {
+      bytes[pos] = (byte) bits;
+    }
+    return bytes;
+  }
+
+  /**
+   * 从{@link #toByteArray()}的结果恢复
+   *
+   * @param bytes
+   * @return
+   */
+  public static HyperLogLog fromByteArray(byte[] bytes) {
+    if (bytes.length < 3 || bytes[0] != SERIAL_VERSION) {
+      throw new IllegalArgumentException("unsupported hyperloglog format");
+    }
+    HyperLogLog hll = new HyperLogLog(bytes[1]);
+    if (bytes[2] == SPARSE) {
+      int[] pos = {3};
+      int size = readVarint(bytes, pos);
+      // 每个元素至少1个字节；序列化时稀疏元素不会超过上限
+      if (size < 0 || size > bytes.length - pos[0] || size > hll.sparseLimit()) {
+        throw corrupted();
+      }
+      hll.sparse = new int[size];
+      hll.spare = new int[size];
+      long value = 0;
+      for (int i = 0; i < size; i++) {
+        value += readVarint(bytes, pos) & 0xffffffffL;
+        int rho = (int) (value & 0x3f);
+        // 位置不超过25位并且严格递增，rho在[1, 65 - 25]之间
+        if (value >>> 6 >= 1L << SPARSE_PRECISION || rho == 0 || rho > 65 - SPARSE_PRECISION
+                || (i > 0 && (value >>> 6) <= (hll.sparse[i - 1] >>> 6))) {
+          throw corrupted();
+        }
+        hll.sparse[i] = (int) value;
+      }
+      if (pos[0] != bytes.length) {
+        throw corrupted();
+      }
+      hll.sparseSize = size;
+      return hll;
+    }
+    if (bytes[2] != DENSE || bytes.length != 3 + (hll.m * 6 + 7) / 8) {
+      throw corrupted();
+    }
+    hll.toDense();
+    int pos = 3;
+    long bits = 0;
+    int bitCount = 0;
+    for (int i = 0; i < hll.m; i++) {
+      while (bitCount < 6) {
+        bits |= (bytes[pos++] & 0xffL) << bitCount;
+        bitCount += 8;
+      }
+      hll.registers[i] = (byte) (bits & 0x3f);
+      bits >>>= 6;
+      bitCount -= 6;
+    }
+    return hll;
+  }
+
+  public int precision() {
+    return p;
+  }
+
+  /**
+   * @return 是否仍在使用稀疏表示
+   */
+  boolean isSparse() {
+    return registers == null;
+  }
+
+  private void mergeEncoded(int encoded) {
+    if (registers == null) {
+      addSparse(encoded);
+      return;
+    }
+    int index = denseIndex(encoded);
+    byte rho = denseRho(encoded);
+    if (rho > registers[index]) {
+      registers[index] = rho;
+    }
+  }
+
+  private void addSparse(int encoded) {
+    buffer[bufferSize++] = encoded;
+    if (bufferSize == buffer.length) {
+      flushBuffer();
+    }
+  }
+
+  /**
+   * 缓冲区排序后与sparse合并，同一位置只保留最大的rho；超过稀疏表示的上限时转换成稠密表示
+   */
+  private void flushBuffer() {
+    if (registers != null || bufferSize == 0) {
+      return;
+    }
+    // 元素按位置、rho排序，同一位置的最后一个rho最大
+    Arrays.sort(buffer, 0, bufferSize);
+    if (spare.length < sparseSize + bufferSize) {
+      spare = new int[Math.max(sparseSize + bufferSize, sparse.length * 2)];
+    }
+    int i = 0;
+    int j = 0;
+    int k = 0;
+    while (i < sparseSize || j < bufferSize) {
+      int next = j == bufferSize || (i < sparseSize && sparse[i] < buffer[j]) ? sparse[i++] : buffer[j++];
+      if (k > 0 && (spare[k - 1] >>> 6) == (next >>> 6)) {
+        spare[k - 1] = Math.max(spare[k - 1], next);
+      } else {
+        spare[k++] = next;
+      }
+    }
+    int[] swap = sparse;
+    sparse = spare;
+    spare = swap;
+    sparseSize = k;
+    bufferSize = 0;
+    if (sparseSize > sparseLimit()) {
+      toDense();
+    }
+  }
+
+  private void toDense() {
+    byte[] dense = new byte[m];
+    for (int i = 0; i < sparseSize + bufferSize; i++) {
+      int encoded = i < sparseSize ? sparse[i] : buffer[i - sparseSize];
+      int index = denseIndex(encoded);
+      byte rho = denseRho(encoded);
+      if (rho > dense[index]) {
+        dense[index] = rho;
+      }
+    }
+    registers = dense;
+    sparse = null;
+    spare = null;
+    buffer = null;
+    sparseSize = 0;
+    bufferSize = 0;
+  }
+
+  /**
+   * 稀疏表示中每个元素4字节，超过m / 4个时比稠密表示占用更多内存
+   *
+   * @return
+   */
+  private int sparseLimit() {
+    return m / 4;
+  }
+
+  private int denseIndex(int encoded) {
+    return encoded >>> (6 + SPARSE_PRECISION - p);
+  }
+
+  /**
+   * 由25位精度的位置和rho计算p位精度的rho：位置中多出的25 - p位不全是0时由这几位决定，否则加上原来的rho
+   *
+   * @param encoded
+   * @return
+   */
+  private byte denseRho(int encoded) {
+    int extraBits = SPARSE_PRECISION - p;
+    int extra = (encoded >>> 6) & ((1 << extraBits) - 1);
+    if (extra != 0) {
+      return (byte) (Integer.numberOfLeadingZeros(extra) - (32 - extraBits) + 1);
+    }
+    return (byte) (extraBits + (encoded & 0x3f));
+  }
+
+  private static double sigma(double x) {
+    if (x == 1) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double y = 1;
+    double z = x;
+    double previous;
+    do {
+      x *= x;
+      previous = z;
+      z += x * y;
+      y += y;
+    } while (z != previous);
+    return z;
+  }
+
+  private static double tau(double x) {
+    if (x == 0 || x == 1) {
+      return 0;
+    }
+    double y = 1;
+    double z = 1 - x;
+    double previous;
+    do {
+      x = Math.sqrt(x);
+      previous = z;
+      y *= 0.5;
+      z -= (1 - x) * (1 - x) * y;
+    } while (z != previous);
+    return z / 3;
+  }
+
+  private int writeHeader(byte[] bytes, int kind) {
+    bytes[0] = SERIAL_VERSION;
+    bytes[1] = (byte) p;
+    bytes[2] = (byte) kind;
+    return 3;
+  }
+
+  private static int writeVarint(byte[] bytes, int pos, int value) {
+    while ((value & ~0x7f) != 0) {
+      bytes[pos++] = (byte) ((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    bytes[pos++] = (byte) value;
+    return pos;
+  }
+
+  /**
+   * 读取writeVarint写入的值，最多5个字节，越界或超过32位时抛出IllegalArgumentException
+   */
+  private static int readVarint(byte[] bytes, int[] pos) {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      if (pos[0] >= bytes.length) {
+        throw corrupted();
+      }
+      byte b = bytes[pos[0]++];
+      if (shift == 28 && (b & 0x70) != 0) {
+        throw corrupted();
+      }
+      value |= (b & 0x7f) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw corrupted();
+  }
+
+  private static IllegalArgumentException corrupted() {
+    return new IllegalArgumentException("corrupted hyperloglog data");
+  }
+}
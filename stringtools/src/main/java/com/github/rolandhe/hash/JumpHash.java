@@ -0,0 +1,48 @@
+package com.github.rolandhe.hash;
+
+import com.github.rolandhe.hash.cityhash.CityHash;
+
+/**
+ * Jump Consistent Hash(Lamping & Veach)，把key映射到编号为[0, buckets)的分片。
+ * 分片数从n增加到n+1时只有约1/(n+1)的key移动到新分片，无需任何内部状态，计算过程不创建对象。
+ * 只适用于编号连续的分片，且只能在末尾增减；有名称的节点随机加入、退出请使用{@link ConsistentHashRing}。
+ *
+ */
+public final class JumpHash {
+  private static final CityHash CITY_HASH = new CityHash();
+
+  private JumpHash() {
+  }
+
+  /**
+   * 计算key所在的分片
+   *
+   * @param key 已经hash过的key，如{@link CityHash#hash64(String)}的结果
+   * @param buckets 分片数
+   * @return [0, buckets)之间的分片编号
+   */
+  public static int bucket(long key, int buckets) {
+    if (buckets <= 0) {
+      throw new IllegalArgumentException("buckets must be positive: " + buckets);
+    }
+    long b = -1;
+    long j = 0;
+    while (j < buckets) {
+      b = j;
+      key = key * 2862933555777941757L + 1;
+      j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+    }
+    return (int) b;
+  }
+
+  /**
+   * 使用CityHash64计算key的hash后再计算所在的分片
+   *
+   * @param key
+   * @param buckets 分片数
+   * @return [0, buckets)之间的分片编号
+   */
+  public static int bucket(String key, int buckets) {
+    return bucket(CITY_HASH.hash64(key), buckets);
+  }
+}
@@ -0,0 +1,201 @@
+package com.github.rolandhe.hash;
+
+/**
+ * key是long指纹、value是long的map，key与value分别保存在两个long[]中，不装箱。
+ * key必须是充分混合的指纹，参见{@link LongHashTable}。
+ * 非线程安全。
+ *
+ */
+public class Long2LongMap extends LongHashTable {
+  private long[] values;
+  private long[] oldValues;
+  private long zeroValue;
+
+  public Long2LongMap() {
+    this(0);
+  }
+
+  /**
+   * @param expectedSize 预计的元素个数，达到该数量前不扩容
+   */
+  public Long2LongMap(int expectedSize) {
+    super(expectedSize);
+    values = new long[keys.length];
+  }
+
+  /**
+   * @param key
+   * @return key不存在时返回0
+   */
+  public long get(long key) {
+    return getOrDefault(key, 0L);
+  }
+
+  public long getOrDefault(long key, long defaultValue) {
+    if (key == 0) {
+      return hasZeroKey ? zeroValue : defaultValue;
+    }
+    int slot = find(key);
+    if (slot >= 0) {
+      return values[slot];
+    }
+    slot = findOld(key);
+    return slot >= 0 ? oldValues[slot] : defaultValue;
+  }
+
+  public boolean containsKey(long key) {
+    if (key == 0) {
+      return hasZeroKey;
+    }
+    return find(key) >= 0 || findOld(key) >= 0;
+  }
+
+  /**
+   * @param key
+   * @param value
+   * @return 原来的value，key不存在时返回0
+   */
+  public long put(long key, long value) {
+    if (key == 0) {
+      long previous = putZero();
+      zeroValue = value;
+      return previous;
+    }
+    prepareWrite();
+    int slot = find(key);
+    if (slot >= 0) {
+      long previous = values[slot];
+      values[slot] = value;
+      return previous;
+    }
+    long previous = 0L;
+    int oldSlot = findOld(key);
+    if (oldSlot >= 0) {
+      previous = oldValues[oldSlot];
+    } else {
+      size++;
+    }
+    values[insert(key)] = value;
+    return previous;
+  }
+
+  /**
+   * 把key的value加上increment，key不存在时视为0
+   *
+   * @param key
+   * @param increment
+   * @return 相加后的value
+   */
+  public long addTo(long key, long increment) {
+    if (key == 0) {
+      zeroValue = putZero() + increment;
+      return zeroValue;
+    }
+    prepareWrite();
+    int slot = find(key);
+    if (slot >= 0) {
+      return values[slot] += increment;
+    }
+    long base = 0L;
+    int oldSlot = findOld(key);
+    if (oldSlot >= 0) {
+      base = oldValues[oldSlot];
+    } else {
+      size++;
+    }
+    return values[insert(key)] = base + increment;
+  }
+
+  /**
+   * @param key
+   * @return 原来的value，key不存在时返回0
+   */
+  public long remove(long key) {
+    if (key == 0) {
+      if (!hasZeroKey) {
+        return 0L;
+      }
+      hasZeroKey = false;
+      size--;
+      return zeroValue;
+    }
+    prepareRemove();
+    int slot = find(key);
+    if (slot < 0) {
+      return 0L;
+    }
+    long previous = values[slot];
+    delete(slot);
+    return previous;
+  }
+
+  /**
+   * 按内部顺序访问所有元素
+   *
+   * @param action
+   */
+  public void forEach(EntryConsumer action) {
+    if (hasZeroKey) {
+      action.accept(0L, zeroValue);
+    }
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != 0) {
+        action.accept(keys[i], values[i]);
+      }
+    }
+    if (oldKeys != null) {
+      for (int i = migrated; i < oldKeys.length; i++) {
+        if (liveInOld(i)) {
+          action.accept(oldKeys[i], oldValues[i]);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void clear() {
+    super.clear();
+  }
+
+  private long putZero() {
+    if (hasZeroKey) {
+      return zeroValue;
+    }
+    hasZeroKey = true;
+    size++;
+    return 0L;
+  }
+
+  @Override
+  void resize(int capacity) {
+    oldValues = values;
+    values = new long[capacity];
+  }
+
+  @Override
+  void copyFromOld(int oldSlot, int slot) {
+    values[slot] = oldValues[oldSlot];
+  }
+
+  @Override
+  void move(int from, int to) {
+    values[to] = values[from];
+  }
+
+  @Override
+  void clear(int slot) {
+  }
+
+  @Override
+  void releaseOld() {
+    oldValues = null;
+  }
+
+  /**
+   * 遍历时接收key与value
+   */
+  @FunctionalInterface
+  public interface EntryConsumer {
+    void accept(long key, long value);
+  }
+}
@@ -0,0 +1,178 @@
+package com.github.rolandhe.hash;
+
+import java.util.Arrays;
+
+/**
+ * key是long指纹的map，key保存在long[]中，value保存在对应下标的Object[]中，key不装箱。
+ * key必须是充分混合的指纹，参见{@link LongHashTable}。
+ * 非线程安全。
+ *
+ * @param <V> value的类型
+ */
+public class Long2ObjectMap<V> extends LongHashTable {
+  private Object[] values;
+  private Object[] oldValues;
+  private V zeroValue;
+
+  public Long2ObjectMap() {
+    this(0);
+  }
+
+  /**
+   * @param expectedSize 预计的元素个数，达到该数量前不扩容
+   */
+  public Long2ObjectMap(int expectedSize) {
+    super(expectedSize);
+    values = new Object[keys.length];
+  }
+
+  /**
+   * @param key
+   * @return key不存在时返回null
+   */
+  @SuppressWarnings("unchecked")
+  public V get(long key) {
+    if (key == 0) {
+      return zeroValue;
+    }
+    int slot = find(key);
+    if (slot >= 0) {
+      return (V) values[slot];
+    }
+    slot = findOld(key);
+    return slot >= 0 ? (V) oldValues[slot] : null;
+  }
+
+  public boolean containsKey(long key) {
+    if (key == 0) {
+      return hasZeroKey;
+    }
+    return find(key) >= 0 || findOld(key) >= 0;
+  }
+
+  /**
+   * @param key
+   * @param value
+   * @return 原来的value，key不存在时返回null
+   */
+  @SuppressWarnings("unchecked")
+  public V put(long key, V value) {
+    if (key == 0) {
+      V previous = zeroValue;
+      if (!hasZeroKey) {
+        hasZeroKey = true;
+        size++;
+      }
+      zeroValue = value;
+      return previous;
+    }
+    prepareWrite();
+    int slot = find(key);
+    if (slot >= 0) {
+      V previous = (V) values[slot];
+      values[slot] = value;
+      return previous;
+    }
+    V previous = null;
+    int oldSlot = findOld(key);
+    if (oldSlot >= 0) {
+      previous = (V) oldValues[oldSlot];
+    } else {
+      size++;
+    }
+    values[insert(key)] = value;
+    return previous;
+  }
+
+  /**
+   * @param key
+   * @return 原来的value，key不存在时返回null
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(long key) {
+    if (key == 0) {
+      V previous = zeroValue;
+      if (hasZeroKey) {
+        hasZeroKey = false;
+        zeroValue = null;
+        size--;
+      }
+      return previous;
+    }
+    prepareRemove();
+    int slot = find(key);
+    if (slot < 0) {
+      return null;
+    }
+    V previous = (V) values[slot];
+    delete(slot);
+    return previous;
+  }
+
+  /**
+   * 按内部顺序访问所有元素
+   *
+   * @param action
+   */
+  @SuppressWarnings("unchecked")
+  public void forEach(EntryConsumer<? super V> action) {
+    if (hasZeroKey) {
+      action.accept(0L, zeroValue);
+    }
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != 0) {
+        action.accept(keys[i], (V) values[i]);
+      }
+    }
+    if (oldKeys != null) {
+      for (int i = migrated; i < oldKeys.length; i++) {
+        if (liveInOld(i)) {
+          action.accept(oldKeys[i], (V) oldValues[i]);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void clear() {
+    super.clear();
+    Arrays.fill(values, null);
+    zeroValue = null;
+  }
+
+  @Override
+  void resize(int capacity) {
+    oldValues = values;
+    values = new Object[capacity];
+  }
+
+  @Override
+  void copyFromOld(int oldSlot, int slot) {
+    values[slot] = oldValues[oldSlot];
+  }
+
+  @Override
+  void move(int from, int to) {
+    values[to] = values[from];
+  }
+
+  @Override
+  void clear(int slot) {
+    values[slot] = null;
+  }
+
+  @Override
+  void releaseOld() {
+    oldValues = null;
+  }
+
+  /**
+   * 遍历时接收key与value
+   *
+   * @param <V> value的类型
+   */
+  @FunctionalInterface
+  public interface EntryConsumer<V> {
+    void accept(long key, V value);
+  }
+}
@@ -0,0 +1,251 @@
+package com.github.rolandhe.hash;
+
+import java.util.Arrays;
+
+/**
+ * 以long指纹为key的开放寻址表的公共部分，供{@link LongSet}、{@link Long2LongMap}、{@link Long2ObjectMap}使用。
+ * <ul>
+ *   <li>key保存在long[]中，线性探测，0表示空位，key为0的元素由子类单独保存</li>
+ *   <li>key已经是hash64等充分混合的指纹，不再做hash，起始位置直接取key的高位</li>
+ *   <li>扩容是渐进的：容量翻倍后旧表保留为只读，之后每次写操作搬迁MIGRATE_STEP个旧槽位，
+ *   查找先查新表，再查旧表中尚未搬迁的部分；删除时一次搬迁完剩余部分，保证删除后不会从旧表复活</li>
+ * </ul>
+ * 非线程安全。
+ *
+ */
+abstract class LongHashTable {
+  static final int MIGRATE_STEP = 8;
+  private static final int MIN_CAPACITY = 16;
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  long[] keys;
+  int shift;
+  int mask;
+  int threshold;
+  /**
+   * 扩容期间的旧表，搬迁完成后为null
+   */
+  long[] oldKeys;
+  int oldShift;
+  /**
+   * 旧表中下标小于migrated的槽位已经搬迁
+   */
+  int migrated;
+  boolean hasZeroKey;
+  int size;
+
+  /**
+   * @param expectedSize 预计的元素个数，达到该数量前不扩容
+   */
+  LongHashTable(int expectedSize) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("expectedSize must not be negative: " + expectedSize);
+    }
+    long capacity = Math.max(MIN_CAPACITY, Long.highestOneBit(Math.max(1, (long) expectedSize * 4 / 3) * 2 - 1));
+    if (capacity > MAX_CAPACITY) {
+      throw new IllegalArgumentException("expectedSize is too large: " + expectedSize);
+    }
+    setTable(new long[(int) capacity]);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * 在新表中查找key，key不能是0
+   *
+   * @param key
+   * @return 槽位，不存在时返回-1
+   */
+  final int find(long key) {
+    for (int i = (int) (key >>> shift); ; i = (i + 1) & mask) {
+      long k = keys[i];
+      if (k == key) {
+        return i;
+      }
+      if (k == 0) {
+        return -1;
+      }
+    }
+  }
+
+  /**
+   * 在旧表尚未搬迁的部分中查找key，key不能是0
+   *
+   * @param key
+   * @return 旧表的槽位，不存在或已经搬迁时返回-1
+   */
+  final int findOld(long key) {
+    long[] old = oldKeys;
+    if (old == null) {
+      return -1;
+    }
+    int oldMask = old.length - 1;
+    for (int i = (int) (key >>> oldShift); ; i = (i + 1) & oldMask) {
+      long k = old[i];
+      if (k == key) {
+        return i >= migrated ? i : -1;
+      }
+      if (k == 0) {
+        return -1;
+      }
+    }
+  }
+
+  /**
+   * 把新表中不存在的key放入新表
+   *
+   * @param key
+   * @return 新的槽位
+   */
+  final int insert(long key) {
+    int i = (int) (key >>> shift);
+    while (keys[i] != 0) {
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    return i;
+  }
+
+  /**
+   * 写操作前调用：推进搬迁，元素个数达到阈值时扩容
+   */
+  final void prepareWrite() {
+    if (oldKeys != null) {
+      migrate(MIGRATE_STEP);
+    }
+    if (size >= threshold) {
+      grow();
+    }
+  }
+
+  /**
+   * 删除操作前调用：一次搬迁完旧表
+   */
+  final void prepareRemove() {
+    if (oldKeys != null) {
+      migrate(oldKeys.length);
+    }
+  }
+
+  /**
+   * 删除新表的slot槽位，后面同一探测链上的元素依次前移，不留墓碑
+   *
+   * @param slot
+   */
+  final void delete(int slot) {
+    int gap = slot;
+    for (int j = (gap + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+      int home = (int) (keys[j] >>> shift);
+      if (((j - home) & mask) >= ((j - gap) & mask)) {
+        keys[gap] = keys[j];
+        move(j, gap);
+        gap = j;
+      }
+    }
+    keys[gap] = 0;
+    clear(gap);
+    size--;
+  }
+
+  /**
+   * 清空所有元素，保留当前容量
+   */
+  void clear() {
+    if (oldKeys != null) {
+      oldKeys = null;
+      releaseOld();
+    }
+    Arrays.fill(keys, 0L);
+    hasZeroKey = false;
+    size = 0;
+  }
+
+  /**
+   * 旧表中尚未搬迁、且新表中不存在的槽位，遍历时与新表的元素一起访问
+   *
+   * @param oldSlot
+   * @return
+   */
+  final boolean liveInOld(int oldSlot) {
+    long k = oldKeys[oldSlot];
+    return oldSlot >= migrated && k != 0 && find(k) < 0;
+  }
+
+  /**
+   * 扩容时由子类把当前的values转为旧表，并分配新容量的values
+   *
+   * @param capacity
+   */
+  abstract void resize(int capacity);
+
+  /**
+   * 把旧表oldSlot的value复制到新表slot
+   *
+   * @param oldSlot
+   * @param slot
+   */
+  abstract void copyFromOld(int oldSlot, int slot);
+
+  /**
+   * 新表内部移动value
+   *
+   * @param from
+   * @param to
+   */
+  abstract void move(int from, int to);
+
+  /**
+   * 清除新表slot的value
+   *
+   * @param slot
+   */
+  abstract void clear(int slot);
+
+  /**
+   * 搬迁完成，释放旧表的values
+   */
+  abstract void releaseOld();
+
+  private void migrate(int steps) {
+    long[] old = oldKeys;
+    int end = (int) Math.min(old.length, (long) migrated + steps);
+    for (int i = migrated; i < end; i++) {
+      long k = old[i];
+      if (k != 0 && find(k) < 0) {
+        copyFromOld(i, insert(k));
+      }
+    }
+    migrated = end;
+    if (end == old.length) {
+      oldKeys = null;
+      releaseOld();
+    }
+  }
+
+  private void grow() {
+    if (oldKeys != null) {
+      migrate(oldKeys.length);
+    }
+    if (keys.length == MAX_CAPACITY) {
+      throw new IllegalStateException("table is full: " + size);
+    }
+    oldKeys = keys;
+    oldShift = shift;
+    migrated = 0;
+    setTable(new long[keys.length * 2]);
+    resize(keys.length);
+  }
+
+  private void setTable(long[] table) {
+    keys = table;
+    mask = table.length - 1;
+    shift = 64 - Integer.numberOfTrailingZeros(table.length);
+    threshold = table.length / 4 * 3;
+  }
+}
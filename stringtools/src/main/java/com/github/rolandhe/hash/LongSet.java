@@ -0,0 +1,122 @@
+package com.github.rolandhe.hash;
+
+import java.util.function.LongConsumer;
+
+/**
+ * long指纹的集合，用于对大量字符串按hash64去重，每个元素只占long[]中的一个槽位，不装箱。
+ * key必须是充分混合的指纹，不能是自增id之类的连续值，参见{@link LongHashTable}。
+ * 非线程安全。
+ *
+ */
+public class LongSet extends LongHashTable {
+
+  public LongSet() {
+    this(0);
+  }
+
+  /**
+   * @param expectedSize 预计的元素个数，达到该数量前不扩容
+   */
+  public LongSet(int expectedSize) {
+    super(expectedSize);
+  }
+
+  /**
+   * @param key
+   * @return key已经存在时返回false
+   */
+  public boolean add(long key) {
+    if (key == 0) {
+      if (hasZeroKey) {
+        return false;
+      }
+      hasZeroKey = true;
+      size++;
+      return true;
+    }
+    prepareWrite();
+    if (find(key) >= 0 || findOld(key) >= 0) {
+      return false;
+    }
+    insert(key);
+    size++;
+    return true;
+  }
+
+  public boolean contains(long key) {
+    if (key == 0) {
+      return hasZeroKey;
+    }
+    return find(key) >= 0 || findOld(key) >= 0;
+  }
+
+  /**
+   * @param key
+   * @return key不存在时返回false
+   */
+  public boolean remove(long key) {
+    if (key == 0) {
+      if (!hasZeroKey) {
+        return false;
+      }
+      hasZeroKey = false;
+      size--;
+      return true;
+    }
+    prepareRemove();
+    int slot = find(key);
+    if (slot < 0) {
+      return false;
+    }
+    delete(slot);
+    return true;
+  }
+
+  /**
+   * 按内部顺序访问所有元素
+   *
+   * @param action
+   */
+  public void forEach(LongConsumer action) {
+    if (hasZeroKey) {
+      action.accept(0L);
+    }
+    for (long key : keys) {
+      if (key != 0) {
+        action.accept(key);
+      }
+    }
+    if (oldKeys != null) {
+      for (int i = migrated; i < oldKeys.length; i++) {
+        if (liveInOld(i)) {
+          action.accept(oldKeys[i]);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void clear() {
+    super.clear();
+  }
+
+  @Override
+  void resize(int capacity) {
+  }
+
+  @Override
+  void copyFromOld(int oldSlot, int slot) {
+  }
+
+  @Override
+  void move(int from, int to) {
+  }
+
+  @Override
+  void clear(int slot) {
+  }
+
+  @Override
+  void releaseOld() {
+  }
+}
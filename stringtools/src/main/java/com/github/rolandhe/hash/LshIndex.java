@@ -0,0 +1,129 @@
+package com.github.rolandhe.hash;
+
+import com.github.rolandhe.hash.cityhash.CityHash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 签名的LSH分段（banding）索引，查询近似重复的候选项，不需要两两比较。
+ * <ul>
+ *   <li>签名的前bands * rows个值分成bands段，每段rows个值hash成一个key，每段一个{@link Long2ObjectMap}</li>
+ *   <li>至少有一段key相同的项都是候选项；MinHash相似度为s的两项成为候选的概率是1 - (1 - s^rows)^bands</li>
+ *   <li>SimHash使用{@link SimHash#bands(long, int)}切分后的签名，rows为1</li>
+ * </ul>
+ * 候选项需要调用方再用{@link MinHash#similarity(long[], long[])}或{@link SimHash#distance(long, long)}确认。
+ * 非线程安全。
+ *
+ * @param <T> 项的类型
+ */
+public class LshIndex<T> {
+  private final int bands;
+  private final int rows;
+  private final Hashable hashable;
+  private final List<Long2ObjectMap<int[]>> tables;
+  private final List<T> items = new ArrayList<>();
+
+  /**
+   * @param bands 段数
+   * @param rows 每段的值个数
+   */
+  public LshIndex(int bands, int rows) {
+    this(bands, rows, new CityHash());
+  }
+
+  /**
+   * @param bands 段数
+   * @param rows 每段的值个数
+   * @param hashable 计算每段key的算法
+   */
+  public LshIndex(int bands, int rows, Hashable hashable) {
+    if (bands <= 0 || rows <= 0) {
+      throw new IllegalArgumentException("bands and rows must be positive: " + bands + ", " + rows);
+    }
+    this.bands = bands;
+    this.rows = rows;
+    this.hashable = Objects.requireNonNull(hashable);
+    this.tables = new ArrayList<>(bands);
+    for (int i = 0; i < bands; i++) {
+      tables.add(new Long2ObjectMap<>());
+    }
+  }
+
+  /**
+   * 加入一项，同一项可以用不同的签名加入多次
+   *
+   * @param item
+   * @param signature 长度不小于bands * rows
+   */
+  public void add(T item, long[] signature) {
+    checkLength(signature);
+    int id = items.size();
+    items.add(item);
+    for (int band = 0; band < bands; band++) {
+      Long2ObjectMap<int[]> table = tables.get(band);
+      long key = bandKey(signature, band);
+      int[] ids = table.get(key);
+      if (ids == null) {
+        ids = new int[4];
+      } else if (ids[0] == ids.length - 1) {
+        ids = Arrays.copyOf(ids, ids.length * 2);
+      } else {
+        ids[++ids[0]] = id;
+        continue;
+      }
+      ids[++ids[0]] = id;
+      table.put(key, ids);
+    }
+  }
+
+  /**
+   * 查询候选项
+   *
+   * @param signature 长度不小于bands * rows
+   * @return 按加入顺序排列、不重复的候选项
+   */
+  public List<T> candidates(long[] signature) {
+    checkLength(signature);
+    int[] found = new int[0];
+    int count = 0;
+    for (int band = 0; band < bands; band++) {
+      int[] ids = tables.get(band).get(bandKey(signature, band));
+      if (ids != null) {
+        if (count + ids[0] > found.length) {
+          found = Arrays.copyOf(found, Math.max(found.length * 2, count + ids[0]));
+        }
+        System.arraycopy(ids, 1, found, count, ids[0]);
+        count += ids[0];
+      }
+    }
+    Arrays.sort(found, 0, count);
+    List<T> result = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      if (i == 0 || found[i] != found[i - 1]) {
+        result.add(items.get(found[i]));
+      }
+    }
+    return result;
+  }
+
+  public int size() {
+    return items.size();
+  }
+
+  private long bandKey(long[] signature, int band) {
+    long key = band;
+    for (int i = band * rows; i < (band + 1) * rows; i++) {
+      key = hashable.hash64(key, signature[i]);
+    }
+    return key;
+  }
+
+  private void checkLength(long[] signature) {
+    if (signature.length < bands * rows) {
+      throw new IllegalArgumentException("signature is shorter than bands * rows: " + signature.length);
+    }
+  }
+}
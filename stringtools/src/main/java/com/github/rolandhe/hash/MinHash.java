@@ -0,0 +1,78 @@
+package com.github.rolandhe.hash;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * MinHash签名，两个签名相同位置相等的比例是两段文本shingle集合Jaccard相似度的无偏估计。
+ * 每个shingle只用hash64WithSeed计算一次，第i个排列是hash64(shingleHash, seeds[i])，
+ * 不需要对每个排列重新hash shingle的内容。
+ * 线程安全。
+ *
+ */
+public final class MinHash {
+  public static final int DEFAULT_NUM_HASHES = 128;
+
+  private final Shingler shingler;
+  private final long[] seeds;
+
+  public MinHash() {
+    this(DEFAULT_NUM_HASHES, new Shingler());
+  }
+
+  /**
+   * @param numHashes 签名的长度，误差约为1 / sqrt(numHashes)
+   * @param shingler
+   */
+  public MinHash(int numHashes, Shingler shingler) {
+    if (numHashes <= 0) {
+      throw new IllegalArgumentException("numHashes must be positive: " + numHashes);
+    }
+    this.shingler = Objects.requireNonNull(shingler);
+    this.seeds = new long[numHashes];
+    for (int i = 0; i < numHashes; i++) {
+      seeds[i] = shingler.hashable().hash64(i);
+    }
+  }
+
+  /**
+   * @param text
+   * @return 空文本的签名全部是Long.MAX_VALUE
+   */
+  public long[] signature(String text) {
+    long[] signature = new long[seeds.length];
+    Arrays.fill(signature, Long.MAX_VALUE);
+    Hashable hashable = shingler.hashable();
+    shingler.forEach(text, h -> {
+      for (int i = 0; i < seeds.length; i++) {
+        long value = hashable.hash64(h, seeds[i]);
+        if (value < signature[i]) {
+          signature[i] = value;
+        }
+      }
+    });
+    return signature;
+  }
+
+  public int numHashes() {
+    return seeds.length;
+  }
+
+  /**
+   * @param a
+   * @param b
+   * @return 估计的Jaccard相似度
+   */
+  public static double similarity(long[] a, long[] b) {
+    if (a.length != b.length) {
+      throw new IllegalArgumentException("length mismatch: " + a.length + " vs " + b.length);
+    }
+    int equal = 0;
+    for (int i = 0; i < a.length; i++) {
+      if (a[i] == b[i]) {
+        equal++;
+      }
+    }
+    return (double) equal / a.length;
+  }
+}
@@ -0,0 +1,91 @@
+package com.github.rolandhe.hash;
+
+import com.github.rolandhe.hash.cityhash.CityHash;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.function.LongConsumer;
+
+/**
+ * 把文本切成字符n-gram（shingle），并计算每个shingle的hash，供{@link SimHash}与{@link MinHash}使用。
+ * <ul>
+ *   <li>n按码点计算，代理对（如扩展区汉字、emoji）作为一个字符，不会被切开</li>
+ *   <li>文本整体编码为UTF-16LE一次，每个shingle是其中的一段字节，用hash64WithSeed计算，不创建子串</li>
+ *   <li>文本不足n个字符时整个文本作为一个shingle，空文本没有shingle</li>
+ * </ul>
+ * 线程安全。
+ *
+ */
+public final class Shingler {
+  public static final int DEFAULT_SIZE = 3;
+  public static final long DEFAULT_SEED = 0x5348494e474c45L;
+
+  private final int size;
+  private final long seed;
+  private final Hashable hashable;
+
+  public Shingler() {
+    this(DEFAULT_SIZE);
+  }
+
+  /**
+   * @param size 每个shingle的字符数
+   */
+  public Shingler(int size) {
+    this(size, DEFAULT_SEED, new CityHash());
+  }
+
+  /**
+   * @param size 每个shingle的字符数
+   * @param seed hash64WithSeed的seed
+   * @param hashable 计算shingle hash的算法
+   */
+  public Shingler(int size, long seed, Hashable hashable) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("size must be positive: " + size);
+    }
+    this.size = size;
+    this.seed = seed;
+    this.hashable = Objects.requireNonNull(hashable);
+  }
+
+  /**
+   * 依次计算text中每个shingle的hash，重复的shingle会重复访问
+   *
+   * @param text
+   * @param action 接收shingle的hash
+   */
+  public void forEach(String text, LongConsumer action) {
+    int length = text.length();
+    if (length == 0) {
+      return;
+    }
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_16LE);
+    int end = 0;
+    for (int i = 0; i < size && end < length; i++) {
+      end = next(text, end);
+    }
+    int start = 0;
+    while (true) {
+      action.accept(hashable.hash64WithSeed(bytes, start * 2, (end - start) * 2, seed));
+      if (end == length) {
+        return;
+      }
+      start = next(text, start);
+      end = next(text, end);
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public Hashable hashable() {
+    return hashable;
+  }
+
+  private static int next(String text, int index) {
+    return Character.isHighSurrogate(text.charAt(index)) && index + 1 < text.length()
+            && Character.isLowSurrogate(text.charAt(index + 1)) ? index + 2 : index + 1;
+  }
+}
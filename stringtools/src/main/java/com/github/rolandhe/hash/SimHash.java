@@ -0,0 +1,73 @@
+package com.github.rolandhe.hash;
+
+import java.util.Objects;
+
+/**
+ * 64位SimHash，相似文本的SimHash只有少数位不同，用汉明距离判断近似重复。
+ * 每个shingle的hash按位投票：该位为1加1，为0减1，票数大于0的位为1。
+ * 线程安全。
+ *
+ */
+public final class SimHash {
+  private final Shingler shingler;
+
+  public SimHash() {
+    this(new Shingler());
+  }
+
+  public SimHash(Shingler shingler) {
+    this.shingler = Objects.requireNonNull(shingler);
+  }
+
+  /**
+   * @param text
+   * @return 空文本返回0
+   */
+  public long hash(String text) {
+    int[] votes = new int[64];
+    shingler.forEach(text, h -> {
+      for (int bit = 0; bit < 64; bit++) {
+        votes[bit] += (int) ((h >>> bit) & 1) * 2 - 1;
+      }
+    });
+    long result = 0;
+    for (int bit = 0; bit < 64; bit++) {
+      if (votes[bit] > 0) {
+        result |= 1L << bit;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param a
+   * @param b
+   * @return 不同的位数
+   */
+  public static int distance(long a, long b) {
+    return Long.bitCount(a ^ b);
+  }
+
+  /**
+   * 把SimHash切成bands段，用作{@link LshIndex}的签名（每段一行）。
+   * 根据抽屉原理，汉明距离小于bands的两个SimHash至少有一段完全相同，一定会成为候选
+   *
+   * @param simHash
+   * @param bands 段数，[1, 64]之间
+   * @return
+   */
+  public static long[] bands(long simHash, int bands) {
+    if (bands < 1 || bands > 64) {
+      throw new IllegalArgumentException("bands must be in [1, 64]: " + bands);
+    }
+    long[] result = new long[bands];
+    int from = 0;
+    for (int i = 0; i < bands; i++) {
+      int to = (i + 1) * 64 / bands;
+      long mask = to - from == 64 ? -1L : (1L << (to - from)) - 1;
+      result[i] = (simHash >>> from) & mask;
+      from = to;
+    }
+    return result;
+  }
+}
@@ -0,0 +1,242 @@
+package com.github.rolandhe.hash;
+
+import com.github.rolandhe.hash.cityhash.CityHash;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 有容量上限的并发字符串驻留池，用于合并大量重复的字符串对象，代替扩展性较差的String.intern()。
+ * <ul>
+ *   <li>表是组相联的：每个桶WAYS个槽位，桶由hash64指纹的高位决定，指纹保存在long[]中，字符串保存在对应下标的String[]中</li>
+ *   <li>查找不加锁：先比较指纹，指纹相同再用equals确认，读到正在被替换的槽位最多只会当作未命中</li>
+ *   <li>插入与淘汰按桶分段加锁；桶满时用CLOCK淘汰：命中会设置槽位的访问标记，淘汰时跳过并清除有标记的槽位</li>
+ * </ul>
+ * 统计查找次数、命中次数与节省的字节数，字节数按compact strings的布局估算：对象头与字段24字节，byte[]对齐到8字节。
+ *
+ */
+public class StringInterner {
+  public static final int WAYS = 8;
+  private static final VarHandle STRINGS = MethodHandles.arrayElementVarHandle(String[].class);
+  private static final VarHandle FINGERPRINTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+  private final Hashable hashable;
+  private final int shift;
+  private final long[] fingerprints;
+  private final String[] strings;
+  private final int[] sizes;
+  private final byte[] referenced;
+  private final byte[] hands;
+  private final ReentrantLock[] locks;
+  private final int lockMask;
+
+  private final LongAdder lookups = new LongAdder();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder bytesSaved = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder entries = new LongAdder();
+
+  /**
+   * @param maxEntries 最多保存的字符串个数，向上取整到WAYS乘以2的幂
+   */
+  public StringInterner(int maxEntries) {
+    this(maxEntries, new CityHash());
+  }
+
+  /**
+   * @param maxEntries 最多保存的字符串个数，向上取整到WAYS乘以2的幂
+   * @param hashable 计算指纹的算法
+   */
+  public StringInterner(int maxEntries, Hashable hashable) {
+    if (maxEntries <= 0 || maxEntries > (1 << 30)) {
+      throw new IllegalArgumentException("maxEntries must be in (0, 2^30]: " + maxEntries);
+    }
+    this.hashable = Objects.requireNonNull(hashable);
+    int buckets = Math.max(2, Integer.highestOneBit((maxEntries + WAYS - 1) / WAYS * 2 - 1));
+    this.shift = 64 - Integer.numberOfTrailingZeros(buckets);
+    this.fingerprints = new long[buckets * WAYS];
+    this.strings = new String[buckets * WAYS];
+    this.sizes = new int[buckets * WAYS];
+    this.referenced = new byte[buckets * WAYS];
+    this.hands = new byte[buckets];
+    int stripes = Math.min(buckets, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1);
+    this.locks = new ReentrantLock[stripes];
+    for (int i = 0; i < stripes; i++) {
+      locks[i] = new ReentrantLock();
+    }
+    this.lockMask = stripes - 1;
+  }
+
+  /**
+   * 返回与value相等的驻留字符串；池中没有时把value放入池中并返回value本身
+   *
+   * @param value
+   * @return
+   */
+  public String intern(String value) {
+    long fingerprint = hashable.hash64(value);
+    int bucket = (int) (fingerprint >>> shift);
+    int start = bucket * WAYS;
+    lookups.increment();
+    String found = find(start, fingerprint, value);
+    if (found != null) {
+      return found;
+    }
+    ReentrantLock lock = locks[bucket & lockMask];
+    lock.lock();
+    try {
+      // 其他线程可能刚刚放入了同一个字符串
+      found = find(start, fingerprint, value);
+      if (found != null) {
+        return found;
+      }
+      int slot = victim(bucket, start);
+      if (strings[slot] == null) {
+        entries.increment();
+      } else {
+        evictions.increment();
+      }
+      FINGERPRINTS.setOpaque(fingerprints, slot, fingerprint);
+      sizes[slot] = retainedSize(value);
+      referenced[slot] = 0;
+      STRINGS.setRelease(strings, slot, value);
+      return value;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return 当前的统计数据
+   */
+  public Stats stats() {
+    return new Stats(lookups.sum(), hits.sum(), bytesSaved.sum(), evictions.sum(), entries.sum(), strings.length);
+  }
+
+  /**
+   * 估算字符串对象占用的字节数：String对象24字节，加上byte[]的16字节头与内容，对齐到8字节
+   *
+   * @param value
+   * @return
+   */
+  static int retainedSize(String value) {
+    int length = value.length();
+    int bytes = length;
+    for (int i = 0; i < length; i++) {
+      if (value.charAt(i) > 0xff) {
+        bytes = length * 2;
+        break;
+      }
+    }
+    return 24 + ((16 + bytes + 7) & ~7);
+  }
+
+  private String find(int start, long fingerprint, String value) {
+    for (int slot = start; slot < start + WAYS; slot++) {
+      if ((long) FINGERPRINTS.getOpaque(fingerprints, slot) != fingerprint) {
+        continue;
+      }
+      String candidate = (String) STRINGS.getAcquire(strings, slot);
+      if (candidate != null && candidate.equals(value)) {
+        if (referenced[slot] == 0) {
+          referenced[slot] = 1;
+        }
+        hits.increment();
+        if (candidate != value) {
+          bytesSaved.add(sizes[slot]);
+        }
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * 在持有锁时选择要写入的槽位：优先使用空槽位，否则从桶的指针开始跳过并清除有访问标记的槽位
+   *
+   * @param bucket
+   * @param start
+   * @return
+   */
+  private int victim(int bucket, int start) {
+    for (int slot = start; slot < start + WAYS; slot++) {
+      if (strings[slot] == null) {
+        return slot;
+      }
+    }
+    int hand = hands[bucket];
+    while (true) {
+      int slot = start + hand;
+      hand = (hand + 1) & (WAYS - 1);
+      if (referenced[slot] == 0) {
+        hands[bucket] = (byte) hand;
+        return slot;
+      }
+      referenced[slot] = 0;
+    }
+  }
+
+  /**
+   * 驻留池的统计快照
+   */
+  public static final class Stats {
+    private final long lookups;
+    private final long hits;
+    private final long bytesSaved;
+    private final long evictions;
+    private final long entries;
+    private final int capacity;
+
+    Stats(long lookups, long hits, long bytesSaved, long evictions, long entries, int capacity) {
+      this.lookups = lookups;
+      this.hits = hits;
+      this.bytesSaved = bytesSaved;
+      this.evictions = evictions;
+      this.entries = entries;
+      this.capacity = capacity;
+    }
+
+    public long getLookups() {
+      return lookups;
+    }
+
+    public long getHits() {
+      return hits;
+    }
+
+    /**
+     * @return 命中次数 / 查找次数，没有查找时为0
+     */
+    public double getHitRatio() {
+      return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * @return 命中时返回了池中已有的对象、调用方的副本可以被回收，这些副本的估算字节数之和
+     */
+    public long getBytesSaved() {
+      return bytesSaved;
+    }
+
+    public long getEvictions() {
+      return evictions;
+    }
+
+    public long getEntries() {
+      return entries;
+    }
+
+    public int getCapacity() {
+      return capacity;
+    }
+
+    @Override
+    public String toString() {
+      return "lookups=" + lookups + ", hits=" + hits + ", hitRatio=" + getHitRatio() + ", bytesSaved=" + bytesSaved
+              + ", evictions=" + evictions + ", entries=" + entries + "/" + capacity;
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package com.github.rolandhe.hash.cityhash;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 描述hash算法读取数据的载体，算法按照小端从载体中读取数据，无需预先把数据拷贝成独立的byte数组。
+ * 载体可以是byte[]，也可以是ByteBuffer(包括direct buffer)，index都是绝对位置。
+ * 4/8字节整数通过VarHandle一次读取，字节序在VarHandle创建时固定为小端，与平台及ByteBuffer的order设置无关。
+ *
+ */
+abstract class ByteSource {
+  /**
+   * 载体是byte[]
+   */
+  static final ByteSource ARRAY = new ArraySource();
+  /**
+   * 载体是ByteBuffer，不依赖ByteBuffer的order设置
+   */
+  static final ByteSource BUFFER = new BufferSource();
+
+  /**
+   * 读取单个字节
+   *
+   * @param base
+   * @param index
+   * @return
+   */
+  abstract byte get(Object base, int index);
+
+  /**
+   * 按小端读取4字节
+   *
+   * @param base
+   * @param index
+   * @return
+   */
+  abstract int fetch32(Object base, int index);
+
+  /**
+   * 按小端读取8字节
+   *
+   * @param base
+   * @param index
+   * @return
+   */
+  abstract long fetch64(Object base, int index);
+
+  private static final class ArraySource extends ByteSource {
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    @Override
+    byte get(Object base, int index) {
+      return ((byte[]) base)[index];
+    }
+
+    @Override
+    int fetch32(Object base, int index) {
+      return (int) INT.get((byte[]) base, index);
+    }
+
+    @Override
+    long fetch64(Object base, int index) {
+      return (long) LONG.get((byte[]) base, index);
+    }
+  }
+
+  private static final class BufferSource extends ByteSource {
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    @Override
+    byte get(Object base, int index) {
+      return ((ByteBuffer) base).get(index);
+    }
+
+    @Override
+    int fetch32(Object base, int index) {
+      return (int) INT.get((ByteBuffer) base, index);
+    }
+
+    @Override
+    long fetch64(Object base, int index) {
+      return (long) LONG.get((ByteBuffer) base, index);
+    }
+  }
+}
@@ -3,16 +3,18 @@ package com.github.rolandhe.hash.cityhash;
 import com.github.rolandhe.hash.Hashable;
 import com.github.rolandhe.hash.Number128;
 
-import java.io.UnsupportedEncodingException;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
 
 /**
  * 完全迁移在cityhash的官方c版本，
+ * 除String外，还可以直接hash byte[]的某个区间或ByteBuffer中的剩余数据，数据不会被拷贝，结果与hash对应的UTF-8字节完全相同。
+ * 64位和128位的计算过程中间状态都保存在局部变量中，不会创建临时对象；128位结果可以写入调用方复用的{@link Number128}。
  *
  * Created by hexiufeng on 2017/6/8.
  */
 public class CityHash implements Hashable {
-  private static  final boolean IS_BIG_EDIAN = !"little".equals(System.getProperty("sun.cpu.endian"));
 
   // Some primes between 2^63 and 2^64 for various uses.
   public static final long k0 = 0xc3a5c85c97cb3127L;
@@ -24,24 +26,336 @@ public class CityHash implements Hashable {
   public static final int c1 = 0xcc9e2d51;
   public static final int c2 = 0x1b873593;
 
+  /**
+   * 不超过该长度的CharSequence编码到线程复用的缓存中
+   */
+  private static final int SCRATCH_CHARS = 24;
+  private static final ThreadLocal<byte[]> SCRATCH =
+          ThreadLocal.withInitial(() -> new byte[(int) Utf8.maxEncodedLength(0, SCRATCH_CHARS)]);
+
 
   @Override
   public int hash32(String raw) {
     byte[] byteArray = convertString2UTF8(raw);
-    int len = byteArray.length;
+    return hash32(ByteSource.ARRAY, byteArray, 0, byteArray.length);
+  }
+
+  @Override
+  public int hash32(byte[] bytes, int offset, int length) {
+    Objects.checkFromIndexSize(offset, length, bytes.length);
+    return hash32(ByteSource.ARRAY, bytes, offset, length);
+  }
+
+  @Override
+  public int hash32(ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      return hash32(ByteSource.ARRAY, buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    }
+    return hash32(ByteSource.BUFFER, buffer, buffer.position(), buffer.remaining());
+  }
+
+  @Override
+  public long hash64(String raw) {
+    byte[] byteArray = convertString2UTF8(raw);
+    return hash64(ByteSource.ARRAY, byteArray, 0, byteArray.length);
+  }
+
+  @Override
+  public long hash64(byte[] bytes, int offset, int length) {
+    Objects.checkFromIndexSize(offset, length, bytes.length);
+    return hash64(ByteSource.ARRAY, bytes, offset, length);
+  }
+
+  @Override
+  public long hash64(ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      return hash64(ByteSource.ARRAY, buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    }
+    return hash64(ByteSource.BUFFER, buffer, buffer.position(), buffer.remaining());
+  }
+
+  /**
+   * 计算int按小端4字节的hash32，结果与hash对应的4字节相同，直接在寄存器中计算
+   *
+   * @param value
+   * @return
+   */
+  @Override
+  public int hash32(int value) {
+    // hash32Len0to4, len = 4
+    int b = 0;
+    int c = 9;
+    for (int i = 0; i < 4; i++) {
+      b = b * c1 + (byte) (value >>> (i * 8));
+      c ^= b;
+    }
+    return fmix(mur(b, mur(4, c)));
+  }
+
+  /**
+   * 计算long按小端8字节的hash64，结果与hash对应的8字节相同，直接在寄存器中计算
+   *
+   * @param value
+   * @return
+   */
+  @Override
+  public long hash64(long value) {
+    // hashLen0to16, len = 8
+    long mul = k2 + 16;
+    long a = value + k2;
+    long c = rotate(value, 37) * mul + a;
+    long d = (rotate(a, 25) + value) * mul;
+    return hashLen16(c, d, mul);
+  }
+
+  /**
+   * 计算两个long按小端顺序拼接的16字节的hash64，结果与hash对应的16字节相同，直接在寄存器中计算
+   *
+   * @param value0 前8字节
+   * @param value1 后8字节
+   * @return
+   */
+  @Override
+  public long hash64(long value0, long value1) {
+    // hashLen0to16, len = 16
+    long mul = k2 + 32;
+    long a = value0 + k2;
+    long c = rotate(value1, 37) * mul + a;
+    long d = (rotate(a, 25) + value1) * mul;
+    return hashLen16(c, d, mul);
+  }
+
+  /**
+   * 计算long数组按小端顺序拼接的字节的hash64，结果与hash对应的字节相同。
+   * 1、2个元素直接在寄存器中计算，其余的转换到线程复用的缓存中，缓存不足时临时创建
+   *
+   * @param values
+   * @return
+   */
+  @Override
+  public long hash64(long[] values) {
+    if (values.length == 1) {
+      return hash64(values[0]);
+    }
+    if (values.length == 2) {
+      return hash64(values[0], values[1]);
+    }
+    if (values.length > Integer.MAX_VALUE / 8) {
+      throw new IllegalArgumentException("too many values: " + values.length);
+    }
+    int len = values.length * 8;
+    byte[] bytes = SCRATCH.get();
+    if (bytes.length < len) {
+      bytes = new byte[len];
+    }
+    for (int i = 0; i < values.length; i++) {
+      long value = values[i];
+      for (int j = 0; j < 8; j++) {
+        bytes[i * 8 + j] = (byte) (value >>> (j * 8));
+      }
+    }
+    return hash64(ByteSource.ARRAY, bytes, 0, len);
+  }
+
+  /**
+   * 与{@link #hash32(String)}相同，StringBuilder、CharBuffer等无需先转换成String
+   *
+   * @param s
+   * @return
+   */
+  public int hash32(CharSequence s) {
+    if (!useScratch(s)) {
+      return hash32(s.toString());
+    }
+    byte[] scratch = SCRATCH.get();
+    return hash32(ByteSource.ARRAY, scratch, 0, Utf8.encode(s, 0, s.length(), scratch, 0));
+  }
+
+  /**
+   * 与{@link #hash64(String)}相同，StringBuilder、CharBuffer等无需先转换成String
+   *
+   * @param s
+   * @return
+   */
+  public long hash64(CharSequence s) {
+    if (!useScratch(s)) {
+      return hash64(s.toString());
+    }
+    byte[] scratch = SCRATCH.get();
+    return hash64(ByteSource.ARRAY, scratch, 0, Utf8.encode(s, 0, s.length(), scratch, 0));
+  }
+
+  public long hash64WithSeeds(CharSequence s, long seed0, long seed1) {
+    return hashLen16(hash64(s) - seed0, seed1);
+  }
+
+  public long hash64WithSeed(CharSequence s, long seed) {
+    return hash64WithSeeds(s, k2, seed);
+  }
+
+  /**
+   * 与{@link #hash128(String)}相同，结果写入out，StringBuilder、CharBuffer等无需先转换成String
+   *
+   * @param s
+   * @param out 接收结果
+   */
+  public void hash128(CharSequence s, final Number128 out) {
+    if (!useScratch(s)) {
+      byte[] byteArray = convertString2UTF8(s.toString());
+      hash128(ByteSource.ARRAY, byteArray, 0, byteArray.length, out);
+      return;
+    }
+    byte[] scratch = SCRATCH.get();
+    hash128(ByteSource.ARRAY, scratch, 0, Utf8.encode(s, 0, s.length(), scratch, 0), out);
+  }
+
+  @Override
+  public  long hash64WithSeeds(String raw, long seed0, long seed1){
+    return hashLen16(hash64(raw) - seed0, seed1);
+  }
+
+  @Override
+  public long hash64WithSeeds(byte[] bytes, int offset, int length, long seed0, long seed1) {
+    return hashLen16(hash64(bytes, offset, length) - seed0, seed1);
+  }
+
+  @Override
+  public long hash64WithSeeds(ByteBuffer buffer, long seed0, long seed1) {
+    return hashLen16(hash64(buffer) - seed0, seed1);
+  }
+
+  @Override
+  public long hash64WithSeed(String raw, long seed){
+    return hash64WithSeeds(raw, k2, seed);
+  }
+
+  @Override
+  public long hash64WithSeed(byte[] bytes, int offset, int length, long seed) {
+    return hash64WithSeeds(bytes, offset, length, k2, seed);
+  }
+
+  @Override
+  public long hash64WithSeed(ByteBuffer buffer, long seed) {
+    return hash64WithSeeds(buffer, k2, seed);
+  }
+
+  @Override
+  public Number128 hash128(String raw){
+    byte[] byteArray = this.convertString2UTF8(raw);
+    Number128 result = new Number128(0L, 0L);
+    hash128(ByteSource.ARRAY, byteArray, 0, byteArray.length, result);
+    return result;
+  }
+
+  @Override
+  public Number128 hash128(byte[] bytes, int offset, int length) {
+    Number128 result = new Number128(0L, 0L);
+    hash128(bytes, offset, length, result);
+    return result;
+  }
+
+  @Override
+  public Number128 hash128(ByteBuffer buffer) {
+    Number128 result = new Number128(0L, 0L);
+    hash128(buffer, result);
+    return result;
+  }
+
+  /**
+   * 与{@link #hash128(byte[], int, int)}相同，结果写入调用方提供的out，可复用out避免创建对象
+   *
+   * @param bytes
+   * @param offset
+   * @param length
+   * @param out 接收结果
+   */
+  public void hash128(byte[] bytes, int offset, int length, final Number128 out) {
+    Objects.checkFromIndexSize(offset, length, bytes.length);
+    hash128(ByteSource.ARRAY, bytes, offset, length, out);
+  }
+
+  /**
+   * 与{@link #hash128(ByteBuffer)}相同，结果写入调用方提供的out，可复用out避免创建对象
+   *
+   * @param buffer
+   * @param out 接收结果
+   */
+  public void hash128(ByteBuffer buffer, final Number128 out) {
+    if (buffer.hasArray()) {
+      hash128(ByteSource.ARRAY, buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), out);
+      return;
+    }
+    hash128(ByteSource.BUFFER, buffer, buffer.position(), buffer.remaining(), out);
+  }
+
+  @Override
+  public Number128 hash128WithSeed(String raw, final Number128 seed){
+    byte[] byteArray = this.convertString2UTF8(raw);
+    Number128 result = new Number128(0L, 0L);
+    hash128WithSeed(ByteSource.ARRAY, byteArray, 0, byteArray.length, seed.getLowValue(), seed.getHiValue(), result);
+    return result;
+  }
+
+  @Override
+  public Number128 hash128WithSeed(byte[] bytes, int offset, int length, final Number128 seed) {
+    Number128 result = new Number128(0L, 0L);
+    hash128WithSeed(bytes, offset, length, seed.getLowValue(), seed.getHiValue(), result);
+    return result;
+  }
+
+  @Override
+  public Number128 hash128WithSeed(ByteBuffer buffer, final Number128 seed) {
+    Number128 result = new Number128(0L, 0L);
+    hash128WithSeed(buffer, seed.getLowValue(), seed.getHiValue(), result);
+    return result;
+  }
+
+  /**
+   * 与{@link #hash128WithSeed(byte[], int, int, Number128)}相同，种子以两个long传入，结果写入调用方提供的out
+   *
+   * @param bytes
+   * @param offset
+   * @param length
+   * @param seedLow 种子的低64位
+   * @param seedHi 种子的高64位
+   * @param out 接收结果
+   */
+  public void hash128WithSeed(byte[] bytes, int offset, int length, long seedLow, long seedHi, final Number128 out) {
+    Objects.checkFromIndexSize(offset, length, bytes.length);
+    hash128WithSeed(ByteSource.ARRAY, bytes, offset, length, seedLow, seedHi, out);
+  }
+
+  /**
+   * 与{@link #hash128WithSeed(ByteBuffer, Number128)}相同，种子以两个long传入，结果写入调用方提供的out
+   *
+   * @param buffer
+   * @param seedLow 种子的低64位
+   * @param seedHi 种子的高64位
+   * @param out 接收结果
+   */
+  public void hash128WithSeed(ByteBuffer buffer, long seedLow, long seedHi, final Number128 out) {
+    if (buffer.hasArray()) {
+      hash128WithSeed(ByteSource.ARRAY, buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(),
+              seedLow, seedHi, out);
+      return;
+    }
+    hash128WithSeed(ByteSource.BUFFER, buffer, buffer.position(), buffer.remaining(), seedLow, seedHi, out);
+  }
+
+  private int hash32(final ByteSource src, final Object base, final int start, final int len) {
     if (len <= 24) {
       return len <= 12 ?
-              (len <= 4 ? hash32Len0to4(byteArray) : hash32Len5to12(byteArray)) :
-              hash32Len13to24(byteArray);
+              (len <= 4 ? hash32Len0to4(src, base, start, len) : hash32Len5to12(src, base, start, len)) :
+              hash32Len13to24(src, base, start, len);
     }
 
     // len > 24
     int h = len, g = c1 * len, f = g;
-    int a0 = rotate32(fetch32(byteArray, len - 4) * c1, 17) * c2;
-    int a1 = rotate32(fetch32(byteArray, len - 8) * c1, 17) * c2;
-    int a2 = rotate32(fetch32(byteArray, len - 16) * c1, 17) * c2;
-    int a3 = rotate32(fetch32(byteArray, len - 12) * c1, 17) * c2;
-    int a4 = rotate32(fetch32(byteArray, len - 20) * c1, 17) * c2;
+    int a0 = rotate32(src.fetch32(base, start + len - 4) * c1, 17) * c2;
+    int a1 = rotate32(src.fetch32(base, start + len - 8) * c1, 17) * c2;
+    int a2 = rotate32(src.fetch32(base, start + len - 16) * c1, 17) * c2;
+    int a3 = rotate32(src.fetch32(base, start + len - 12) * c1, 17) * c2;
+    int a4 = rotate32(src.fetch32(base, start + len - 20) * c1, 17) * c2;
     h ^= a0;
     h = rotate32(h, 19);
     h = h * 5 + 0xe6546b64;
@@ -59,13 +373,13 @@ public class CityHash implements Hashable {
     f = f * 5 + 0xe6546b64;
     int iters = (len - 1) / 20;
 
-    int pos = 0;
+    int pos = start;
     do {
-      a0 = rotate32(fetch32(byteArray,pos) * c1, 17) * c2;
-      a1 = fetch32(byteArray,pos + 4);
-      a2 = rotate32(fetch32(byteArray,pos + 8) * c1, 17) * c2;
-      a3 = rotate32(fetch32(byteArray,pos + 12) * c1, 17) * c2;
-      a4 = fetch32(byteArray,pos + 16);
+      a0 = rotate32(src.fetch32(base, pos) * c1, 17) * c2;
+      a1 = src.fetch32(base, pos + 4);
+      a2 = rotate32(src.fetch32(base, pos + 8) * c1, 17) * c2;
+      a3 = rotate32(src.fetch32(base, pos + 12) * c1, 17) * c2;
+      a4 = src.fetch32(base, pos + 16);
       h ^= a0;
       h = rotate32(h, 18);
       h = h * 5 + 0xe6546b64;
@@ -104,40 +418,63 @@ public class CityHash implements Hashable {
     return h;
   }
 
-  @Override
-  public long hash64(String raw) {
-    byte[] byteArray = convertString2UTF8(raw);
-    int len = byteArray.length;
+
+  private long hash64(final ByteSource src, final Object base, final int start, int len) {
     if (len <= 32) {
       if (len <= 16) {
-        return hashLen0to16(byteArray);
+        return hashLen0to16(src, base, start, len);
       } else {
-        return hashLen17to32(byteArray);
+        return hashLen17to32(src, base, start, len);
       }
     } else if (len <= 64) {
-      return hashLen33to64(byteArray);
+      return hashLen33to64(src, base, start, len);
     }
 
     // For strings over 64 bytes we hash the end first, and then as we
     // loop we keep 56 bytes of state: v, w, x, y, and z.
-    long x = fetch64(byteArray, len - 40);
-    long y = fetch64(byteArray, len - 16) + fetch64(byteArray, len - 56);
-    long z = hashLen16(fetch64(byteArray, len - 48) + len, fetch64(byteArray, len - 24));
-    Number128 v = weakHashLen32WithSeeds(byteArray, len - 64, len, z);
-    Number128 w = weakHashLen32WithSeeds(byteArray, len - 32, y + k1, x);
-    x = x * k1 + fetch64(byteArray,0);
+    int end = start + len;
+    long x = src.fetch64(base, end - 40);
+    long y = src.fetch64(base, end - 16) + src.fetch64(base, end - 56);
+    long z = hashLen16(src.fetch64(base, end - 48) + len, src.fetch64(base, end - 24));
+    // v = WeakHashLen32WithSeeds(s + len - 64, len, z)
+    long a = len + src.fetch64(base, end - 64);
+    long b = rotate(z + a + src.fetch64(base, end - 40), 21);
+    long c = a;
+    a += src.fetch64(base, end - 56) + src.fetch64(base, end - 48);
+    long vLow = a + src.fetch64(base, end - 40);
+    long vHi = b + rotate(a, 44) + c;
+    // w = WeakHashLen32WithSeeds(s + len - 32, y + k1, x)
+    a = y + k1 + src.fetch64(base, end - 32);
+    b = rotate(x + a + src.fetch64(base, end - 8), 21);
+    c = a;
+    a += src.fetch64(base, end - 24) + src.fetch64(base, end - 16);
+    long wLow = a + src.fetch64(base, end - 8);
+    long wHi = b + rotate(a, 44) + c;
+    x = x * k1 + src.fetch64(base, start);
 
     // Decrease len to the nearest multiple of 64, and operate on 64-byte chunks.
     len = (len - 1) & ~63;
-    int pos = 0;
+    int pos = start;
     do {
-      x = rotate(x + y + v.getLowValue() + fetch64(byteArray , pos + 8), 37) * k1;
-      y = rotate(y + v.getHiValue() + fetch64(byteArray , pos + 48), 42) * k1;
-      x ^= w.getHiValue();
-      y += v.getLowValue() + fetch64(byteArray, pos+ 40);
-      z = rotate(z + w.getLowValue(), 33) * k1;
-      v = weakHashLen32WithSeeds(byteArray,pos, v.getHiValue() * k1, x + w.getLowValue());
-      w = weakHashLen32WithSeeds(byteArray,  pos + 32, z + w.getHiValue(), y + fetch64(byteArray, pos + 16));
+      x = rotate(x + y + vLow + src.fetch64(base, pos + 8), 37) * k1;
+      y = rotate(y + vHi + src.fetch64(base, pos + 48), 42) * k1;
+      x ^= wHi;
+      y += vLow + src.fetch64(base, pos + 40);
+      z = rotate(z + wLow, 33) * k1;
+      // v = WeakHashLen32WithSeeds(s, v.second * k1, x + w.first)
+      a = vHi * k1 + src.fetch64(base, pos);
+      b = rotate(x + wLow + a + src.fetch64(base, pos + 24), 21);
+      c = a;
+      a += src.fetch64(base, pos + 8) + src.fetch64(base, pos + 16);
+      vLow = a + src.fetch64(base, pos + 24);
+      vHi = b + rotate(a, 44) + c;
+      // w = WeakHashLen32WithSeeds(s + 32, z + w.second, y + Fetch64(s + 16))
+      a = z + wHi + src.fetch64(base, pos + 32);
+      b = rotate(y + src.fetch64(base, pos + 16) + a + src.fetch64(base, pos + 56), 21);
+      c = a;
+      a += src.fetch64(base, pos + 40) + src.fetch64(base, pos + 48);
+      wLow = a + src.fetch64(base, pos + 56);
+      wHi = b + rotate(a, 44) + c;
       // swap z,x value
       long swapValue = x;
       x = z;
@@ -145,161 +482,167 @@ public class CityHash implements Hashable {
       pos += 64;
       len -= 64;
     } while (len != 0);
-    return hashLen16(hashLen16(v.getLowValue(), w.getLowValue()) + shiftMix(y) * k1 + z,
-            hashLen16(v.getHiValue(), w.getHiValue()) + x);
+    return hashLen16(hashLen16(vLow, wLow) + shiftMix(y) * k1 + z,
+            hashLen16(vHi, wHi) + x);
   }
 
-  @Override
-  public  long hash64WithSeeds(String raw, long seed0, long seed1){
-    return hashLen16(hash64(raw) - seed0, seed1);
-  }
-
-  @Override
-  public long hash64WithSeed(String raw, long seed){
-    return hash64WithSeeds(raw, k2, seed);
-  }
-
-  @Override
-  public Number128 hash128(String raw){
-    byte[] byteArray = this.convertString2UTF8(raw);
-    int len = byteArray.length;
-    return len >= 16 ?
-            hash128WithSeed(byteArray,16,
-                    new Number128(fetch64(byteArray,0), fetch64(byteArray , 8) + k0)) :
-            hash128WithSeed(byteArray, 0, new Number128(k0, k1));
-  }
-
-  @Override
-  public Number128 hash128WithSeed(String raw, final Number128 seed){
-    byte[] byteArray = this.convertString2UTF8(raw);
-    return hash128WithSeed(byteArray,0,seed);
+  private void hash128(final ByteSource src, final Object base, final int start, final int len, final Number128 out) {
+    if (len >= 16) {
+      hash128WithSeed(src, base, start + 16, len - 16,
+              src.fetch64(base, start), src.fetch64(base, start + 8) + k0, out);
+    } else {
+      hash128WithSeed(src, base, start, len, k0, k1, out);
+    }
   }
-  private Number128 hash128WithSeed(final byte[] byteArray, int start, final Number128 seed) {
-    int len = byteArray.length - start;
 
+  private void hash128WithSeed(final ByteSource src, final Object base, final int start, int len,
+                               final long seedLow, final long seedHi, final Number128 out) {
     if (len < 128) {
-      return cityMurmur(Arrays.copyOfRange(byteArray,start,byteArray.length), seed);
+      cityMurmur(src, base, start, len, seedLow, seedHi, out);
+      return;
     }
 
     // We expect len >= 128 to be the common case.  Keep 56 bytes of state:
     // v, w, x, y, and z.
-    Number128 v = new Number128(0L,0L);
-    Number128 w = new Number128(0L,0L);
-    long x = seed.getLowValue();
-    long y = seed.getHiValue();
+    long x = seedLow;
+    long y = seedHi;
     long z = len * k1;
-    v.setLowValue(rotate(y ^ k1, 49) * k1 + fetch64(byteArray, start));
-    v.setHiValue(rotate(v.getLowValue(), 42) * k1 + fetch64(byteArray, start + 8));
-    w.setLowValue(rotate(y + z, 35) * k1 + x);
-    w.setHiValue(rotate(x + fetch64(byteArray, start + 88), 53) * k1);
+    long vLow = rotate(y ^ k1, 49) * k1 + src.fetch64(base, start);
+    long vHi = rotate(vLow, 42) * k1 + src.fetch64(base, start + 8);
+    long wLow = rotate(y + z, 35) * k1 + x;
+    long wHi = rotate(x + src.fetch64(base, start + 88), 53) * k1;
+    long a;
+    long b;
+    long c;
 
     // This is the same inner loop as CityHash64(), manually unrolled.
     int pos = start;
     do {
-      x = rotate(x + y + v.getLowValue() + fetch64(byteArray,pos + 8), 37) * k1;
-      y = rotate(y + v.getHiValue() + fetch64(byteArray,pos + 48), 42) * k1;
-      x ^= w.getHiValue();
-      y += v.getLowValue() + fetch64(byteArray,pos + 40);
-      z = rotate(z + w.getLowValue(), 33) * k1;
-      v = weakHashLen32WithSeeds(byteArray,pos, v.getHiValue() * k1, x + w.getLowValue());
-      w = weakHashLen32WithSeeds(byteArray,pos + 32, z + w.getHiValue(), y + fetch64(byteArray,pos + 16));
-
+      x = rotate(x + y + vLow + src.fetch64(base, pos + 8), 37) * k1;
+      y = rotate(y + vHi + src.fetch64(base, pos + 48), 42) * k1;
+      x ^= wHi;
+      y += vLow + src.fetch64(base, pos + 40);
+      z = rotate(z + wLow, 33) * k1;
+      a = vHi * k1 + src.fetch64(base, pos);
+      b = rotate(x + wLow + a + src.fetch64(base, pos + 24), 21);
+      c = a;
+      a += src.fetch64(base, pos + 8) + src.fetch64(base, pos + 16);
+      vLow = a + src.fetch64(base, pos + 24);
+      vHi = b + rotate(a, 44) + c;
+      a = z + wHi + src.fetch64(base, pos + 32);
+      b = rotate(y + src.fetch64(base, pos + 16) + a + src.fetch64(base, pos + 56), 21);
+      c = a;
+      a += src.fetch64(base, pos + 40) + src.fetch64(base, pos + 48);
+      wLow = a + src.fetch64(base, pos + 56);
+      wHi = b + rotate(a, 44) + c;
       long swapValue = x;
       x = z;
       z = swapValue;
       pos += 64;
-      x = rotate(x + y + v.getLowValue() + fetch64(byteArray,pos + 8), 37) * k1;
-      y = rotate(y + v.getHiValue() + fetch64(byteArray,pos + 48), 42) * k1;
-      x ^= w.getHiValue();
-      y += v.getLowValue() + fetch64(byteArray,pos + 40);
-      z = rotate(z + w.getLowValue(), 33) * k1;
-      v = weakHashLen32WithSeeds(byteArray,pos, v.getHiValue() * k1, x + w.getLowValue());
-      w = weakHashLen32WithSeeds(byteArray,pos + 32, z + w.getHiValue(), y + fetch64(byteArray,pos + 16));
+      x = rotate(x + y + vLow + src.fetch64(base, pos + 8), 37) * k1;
+      y = rotate(y + vHi + src.fetch64(base, pos + 48), 42) * k1;
+      x ^= wHi;
+      y += vLow + src.fetch64(base, pos + 40);
+      z = rotate(z + wLow, 33) * k1;
+      a = vHi * k1 + src.fetch64(base, pos);
+      b = rotate(x + wLow + a + src.fetch64(base, pos + 24), 21);
+      c = a;
+      a += src.fetch64(base, pos + 8) + src.fetch64(base, pos + 16);
+      vLow = a + src.fetch64(base, pos + 24);
+      vHi = b + rotate(a, 44) + c;
+      a = z + wHi + src.fetch64(base, pos + 32);
+      b = rotate(y + src.fetch64(base, pos + 16) + a + src.fetch64(base, pos + 56), 21);
+      c = a;
+      a += src.fetch64(base, pos + 40) + src.fetch64(base, pos + 48);
+      wLow = a + src.fetch64(base, pos + 56);
+      wHi = b + rotate(a, 44) + c;
       swapValue = x;
       x = z;
       z = swapValue;
       pos += 64;
       len -= 128;
     } while (len >= 128);
-    x += rotate(v.getLowValue() + z, 49) * k0;
-    y = y * k0 + rotate(w.getHiValue(), 37);
-    z = z * k0 + rotate(w.getLowValue(), 27);
-    w.setLowValue(w.getLowValue()*9);
-    v.setLowValue(v.getLowValue()*k0);
+    x += rotate(vLow + z, 49) * k0;
+    y = y * k0 + rotate(wHi, 37);
+    z = z * k0 + rotate(wLow, 27);
+    wLow *= 9;
+    vLow *= k0;
 
     // If 0 < len < 128, hash up to 4 chunks of 32 bytes each from the end of s.
     for (int tail_done = 0; tail_done < len; ) {
       tail_done += 32;
-      y = rotate(x + y, 42) * k0 + v.getHiValue();
-      w.setLowValue(w.getLowValue() + fetch64(byteArray , pos + len - tail_done + 16));
-      x = x * k0 + w.getLowValue();
-      z += w.getHiValue() + fetch64(byteArray ,pos + len - tail_done);
-      w.setHiValue(w.getHiValue() + v.getLowValue());
-      v = weakHashLen32WithSeeds(byteArray, pos + len - tail_done, v.getLowValue() + z, v.getHiValue());
-      v.setLowValue(v.getLowValue() * k0);
+      int tailPos = pos + len - tail_done;
+      y = rotate(x + y, 42) * k0 + vHi;
+      wLow += src.fetch64(base, tailPos + 16);
+      x = x * k0 + wLow;
+      z += wHi + src.fetch64(base, tailPos);
+      wHi += vLow;
+      // v = WeakHashLen32WithSeeds(s + len - tail_done, v.first + z, v.second)
+      a = vLow + z + src.fetch64(base, tailPos);
+      b = rotate(vHi + a + src.fetch64(base, tailPos + 24), 21);
+      c = a;
+      a += src.fetch64(base, tailPos + 8) + src.fetch64(base, tailPos + 16);
+      vLow = (a + src.fetch64(base, tailPos + 24)) * k0;
+      vHi = b + rotate(a, 44) + c;
     }
     // At this point our 56 bytes of state should contain more than
     // enough information for a strong 128-bit hash.  We use two
     // different 56-byte-to-8-byte hashes to get a 16-byte final result.
-    x = hashLen16(x, v.getLowValue());
-    y = hashLen16(y + z, w.getLowValue());
-    return new Number128(hashLen16(x + v.getHiValue(), w.getHiValue()) + y,
-            hashLen16(x + w.getHiValue(), y + v.getHiValue()));
-
+    x = hashLen16(x, vLow);
+    y = hashLen16(y + z, wLow);
+    out.setLowValue(hashLen16(x + vHi, wHi) + y);
+    out.setHiValue(hashLen16(x + wHi, y + vHi));
   }
 
-  private int hash32Len0to4(final byte[] byteArray) {
+  private int hash32Len0to4(final ByteSource src, final Object base, final int start, final int len) {
     int b = 0;
     int c = 9;
-    int len = byteArray.length;
     for (int i = 0; i < len; i++) {
-      int v = byteArray[i];
+      int v = src.get(base, start + i);
       b = b * c1 + v;
       c ^= b;
     }
     return fmix(mur(b, mur(len, c)));
   }
 
-   private int hash32Len5to12(final byte[] byteArray) {
-    int len = byteArray.length;
+  private int hash32Len5to12(final ByteSource src, final Object base, final int start, final int len) {
     int a = len, b = len * 5, c = 9, d = b;
-    a += fetch32(byteArray,0);
-    b += fetch32(byteArray , len - 4);
-    c += fetch32(byteArray, ((len >>> 1) & 4));
+    a += src.fetch32(base, start);
+    b += src.fetch32(base, start + len - 4);
+    c += src.fetch32(base, start + ((len >>> 1) & 4));
     return fmix(mur(c, mur(b, mur(a, d))));
   }
-  private int hash32Len13to24(byte[] byteArray) {
-    int len = byteArray.length;
-    int a = fetch32(byteArray, (len >>> 1) - 4 );
-    int b = fetch32(byteArray, 4);
-    int c = fetch32(byteArray, len - 8);
-    int d = fetch32(byteArray, (len >>> 1));
-    int e = fetch32(byteArray,0);
-    int f = fetch32(byteArray, len - 4);
+
+  private int hash32Len13to24(final ByteSource src, final Object base, final int start, final int len) {
+    int a = src.fetch32(base, start + (len >>> 1) - 4);
+    int b = src.fetch32(base, start + 4);
+    int c = src.fetch32(base, start + len - 8);
+    int d = src.fetch32(base, start + (len >>> 1));
+    int e = src.fetch32(base, start);
+    int f = src.fetch32(base, start + len - 4);
     int h = len;
 
     return fmix(mur(f, mur(e, mur(d, mur(c, mur(b, mur(a, h)))))));
   }
 
-  private long hashLen0to16(byte[] byteArray) {
-    int len = byteArray.length;
+  private long hashLen0to16(final ByteSource src, final Object base, final int start, final int len) {
     if (len >= 8) {
       long mul = k2 + len * 2;
-      long a = fetch64(byteArray,0) + k2;
-      long b = fetch64(byteArray,len - 8);
+      long a = src.fetch64(base, start) + k2;
+      long b = src.fetch64(base, start + len - 8);
       long c = rotate(b, 37) * mul + a;
       long d = (rotate(a, 25) + b) * mul;
       return hashLen16(c, d, mul);
     }
     if (len >= 4) {
       long mul = k2 + len * 2;
-      long a = fetch32(byteArray,0)&0xffffffffL;
-      return hashLen16(len + (a << 3), fetch32(byteArray , len - 4)&0xffffffffL, mul);
+      long a = src.fetch32(base, start)&0xffffffffL;
+      return hashLen16(len + (a << 3), src.fetch32(base, start + len - 4)&0xffffffffL, mul);
     }
     if (len > 0) {
-      int a = byteArray[0]&0xff;
-      int b = byteArray[len >>> 1]&0xff;
-      int c = byteArray[len - 1]&0xff;
+      int a = src.get(base, start)&0xff;
+      int b = src.get(base, start + (len >>> 1))&0xff;
+      int c = src.get(base, start + len - 1)&0xff;
       int y = a + (b << 8);
       int z = len + (c << 2);
       return shiftMix(y * k2 ^ z * k0) * k2;
@@ -309,28 +652,26 @@ public class CityHash implements Hashable {
 
   // This probably works well for 16-byte strings as well, but it may be overkill
 // in that case.
-  private long hashLen17to32(byte[] byteArray) {
-    int len = byteArray.length;
+  private long hashLen17to32(final ByteSource src, final Object base, final int start, final int len) {
     long mul = k2 + len * 2;
-    long a = fetch64(byteArray,0) * k1;
-    long b = fetch64(byteArray, 8);
-    long c = fetch64(byteArray, len - 8) * mul;
-    long d = fetch64(byteArray, len - 16) * k2;
+    long a = src.fetch64(base, start) * k1;
+    long b = src.fetch64(base, start + 8);
+    long c = src.fetch64(base, start + len - 8) * mul;
+    long d = src.fetch64(base, start + len - 16) * k2;
     return hashLen16(rotate(a + b, 43) + rotate(c, 30) + d,
             a + rotate(b + k2, 18) + c, mul);
   }
 
-  private long hashLen33to64(byte[] byteArray) {
-    int len = byteArray.length;
+  private long hashLen33to64(final ByteSource src, final Object base, final int start, final int len) {
     long mul = k2 + len * 2;
-    long a = fetch64(byteArray,0) * k2;
-    long b = fetch64(byteArray, 8);
-    long c = fetch64(byteArray, len - 24);
-    long d = fetch64(byteArray, len - 32);
-    long e = fetch64(byteArray, 16) * k2;
-    long f = fetch64(byteArray, 24) * 9;
-    long g = fetch64(byteArray, len - 8);
-    long h = fetch64(byteArray, len - 16) * mul;
+    long a = src.fetch64(base, start) * k2;
+    long b = src.fetch64(base, start + 8);
+    long c = src.fetch64(base, start + len - 24);
+    long d = src.fetch64(base, start + len - 32);
+    long e = src.fetch64(base, start + 16) * k2;
+    long f = src.fetch64(base, start + 24) * 9;
+    long g = src.fetch64(base, start + len - 8);
+    long h = src.fetch64(base, start + len - 16) * mul;
     long u = rotate(a + g, 43) + (rotate(b, 30) + c) * 9;
     long v = ((a + g) ^ d) + f + 1;
     long w = Long.reverseBytes((u + v) * mul) + h;
@@ -342,37 +683,7 @@ public class CityHash implements Hashable {
     return b + x;
   }
 
-  private long loadUnaligned64(final byte[] byteArray,final int start) {
-    long result = 0;
-    OrderIter orderIter = new OrderIter(8,this.IS_BIG_EDIAN);
-    while(orderIter.hasNext()){
-      int next = orderIter.next();
-      long value = (byteArray[next + start]&0xffL)<<(next * 8);
-      result |= value;
-    }
-    return result;
-  }
-
-  private int loadUnaligned32(final byte[] byteArray,final int start) {
-    int result = 0;
-    OrderIter orderIter = new OrderIter(4,this.IS_BIG_EDIAN);
-    while(orderIter.hasNext()){
-      int next = orderIter.next();
-      int value = (byteArray[next + start]&0xff)<<(next * 8);
-      result |= value;
-    }
-    return result;
-  }
-
-  private long fetch64(byte[] byteArray,final int start) {
-    return loadUnaligned64(byteArray,start);
-  }
-
-  private int fetch32(byte[] byteArray,final int start) {
-    return loadUnaligned32(byteArray,start);
-  }
-
-  private long rotate(long val, int shift) {
+  static long rotate(long val, int shift) {
     // Avoid shifting by 64: doing so yields an undefined result.
     return shift == 0 ? val : ((val >>> shift) | (val << (64 - shift)));
   }
@@ -392,21 +703,18 @@ public class CityHash implements Hashable {
     return b;
   }
 
-  private long hashLen16(long u, long v) {
-    return hash128to64(new Number128(u, v));
-  }
 
-  private long hash128to64(final Number128 number128) {
-    // Murmur-inspired hashing.
-    long a = (number128.getLowValue() ^number128.getHiValue()) * kMul;
+  static long hashLen16(long u, long v) {
+    // Murmur-inspired hashing, same as Hash128to64.
+    long a = (u ^ v) * kMul;
     a ^= (a >>> 47);
-    long b = (number128.getHiValue() ^ a) * kMul;
+    long b = (v ^ a) * kMul;
     b ^= (b >>> 47);
     b *= kMul;
     return b;
   }
 
-  private long shiftMix(long val) {
+  static long shiftMix(long val) {
     return val ^ (val >>> 47);
   }
 
@@ -430,49 +738,28 @@ public class CityHash implements Hashable {
     return h * 5 + 0xe6546b64;
   }
 
-  private Number128 weakHashLen32WithSeeds(
-          long w, long x, long y, long z, long a, long b) {
-    a += w;
-    b = rotate(b + a + z, 21);
-    long c = a;
-    a += x;
-    a += y;
-    b += rotate(a, 44);
-    return new Number128(a + z, b + c);
-  }
-
-  // Return a 16-byte hash for s[0] ... s[31], a, and b.  Quick and dirty.
-  private Number128 weakHashLen32WithSeeds(
-    byte[] byteArray, int start,long a, long b) {
-    return weakHashLen32WithSeeds(fetch64(byteArray,start),
-            fetch64(byteArray , start+8),
-            fetch64(byteArray, start+16),
-            fetch64(byteArray,start+24),
-            a,
-            b);
-  }
-
-  private Number128 cityMurmur(final byte[] byteArray, Number128 seed) {
-    int len = byteArray.length;
-    long a = seed.getLowValue();
-    long b = seed.getHiValue();
+
+  private void cityMurmur(final ByteSource src, final Object base, final int start, final int len,
+                          final long seedLow, final long seedHi, final Number128 out) {
+    long a = seedLow;
+    long b = seedHi;
     long c = 0L;
     long d = 0L;
     int l = len - 16;
     if (l <= 0) {  // len <= 16
       a = shiftMix(a * k1) * k1;
-      c = b * k1 + hashLen0to16(byteArray);
-      d = shiftMix(a + (len >= 8 ? fetch64(byteArray, 0) : c));
+      c = b * k1 + hashLen0to16(src, base, start, len);
+      d = shiftMix(a + (len >= 8 ? src.fetch64(base, start) : c));
     } else {  // len > 16
-      c = hashLen16(fetch64(byteArray, len - 8) + k1, a);
-      d = hashLen16(b + len, c + fetch64(byteArray , len - 16));
+      c = hashLen16(src.fetch64(base, start + len - 8) + k1, a);
+      d = hashLen16(b + len, c + src.fetch64(base, start + len - 16));
       a += d;
-      int pos = 0;
+      int pos = start;
       do {
-        a ^= shiftMix(fetch64(byteArray,pos) * k1) * k1;
+        a ^= shiftMix(src.fetch64(base, pos) * k1) * k1;
         a *= k1;
         b ^= a;
-        c ^= shiftMix(fetch64(byteArray,pos + 8) * k1) * k1;
+        c ^= shiftMix(src.fetch64(base, pos + 8) * k1) * k1;
         c *= k1;
         d ^= c;
         pos += 16;
@@ -481,36 +768,22 @@ public class CityHash implements Hashable {
     }
     a = hashLen16(a, c);
     b = hashLen16(d, b);
-    return new Number128(a ^ b, hashLen16(b, a));
+    out.setLowValue(a ^ b);
+    out.setHiValue(hashLen16(b, a));
   }
 
-  private static class OrderIter{
-    private final int size;
-    private final boolean isBigEdian;
-    private int index;
-
-    OrderIter(int size,boolean isBigEdian){
-      this.size = size;
-      this.isBigEdian = isBigEdian;
-    }
-    boolean hasNext(){
-      return index < size;
-    }
-    int next(){
-      if(!isBigEdian){
-        return index++;
-      }else{
-        return size - 1 - index++;
-      }
-    }
+  private  byte[] convertString2UTF8(String raw){
+    return raw.getBytes(StandardCharsets.UTF_8);
   }
 
-  private  byte[] convertString2UTF8(String raw){
-    try {
-      return raw.getBytes("UTF-8");
-    } catch (UnsupportedEncodingException e) {
-      // don't happen
-      throw  new RuntimeException(e);
-    }
+  /**
+   * 短的CharSequence编码到线程复用的缓存中，避免创建对象；
+   * String及长的CharSequence使用jdk的编码，jdk对String的编码有专门的优化，比逐个字符编码更快
+   *
+   * @param s
+   * @return 是否使用线程缓存编码
+   */
+  private static boolean useScratch(CharSequence s) {
+    return !(s instanceof String) && s.length() <= SCRATCH_CHARS;
   }
 }
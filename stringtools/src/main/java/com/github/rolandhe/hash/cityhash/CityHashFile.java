@@ -0,0 +1,252 @@
+package com.github.rolandhe.hash.cityhash;
+
+import com.github.rolandhe.hash.Number128;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.github.rolandhe.hash.cityhash.CityHash.hashLen16;
+import static com.github.rolandhe.hash.cityhash.CityHash.k0;
+import static com.github.rolandhe.hash.cityhash.CityHash.k1;
+import static com.github.rolandhe.hash.cityhash.CityHash.rotate;
+import static com.github.rolandhe.hash.cityhash.CityHash.shiftMix;
+
+/**
+ * 对整个文件计算cityhash，结果与把文件内容读入内存后调用{@link CityHash}计算的结果完全相同。
+ * 文件通过{@link FileChannel#map}按窗口映射，cityhash的主循环直接在映射的内存上执行，数据不会被拷贝到堆中，
+ * 因此可以处理超过2G的文件。
+ * 不超过一个窗口的文件一次映射后直接交给{@link CityHash}计算。
+ * 已映射的窗口在被gc回收时才会解除映射。
+ *
+ */
+public class CityHashFile {
+  /**
+   * 默认窗口大小，64M
+   */
+  public static final int DEFAULT_WINDOW_SIZE = 64 << 20;
+
+  /**
+   * 窗口大小必须是该值的整数倍，保证cityhash的每个数据块都完整的落在一个窗口中
+   */
+  private static final int BLOCK_SIZE = 128;
+
+  private static final CityHash CITY_HASH = new CityHash();
+
+  private final int windowSize;
+
+  public CityHashFile() {
+    this(DEFAULT_WINDOW_SIZE);
+  }
+
+  /**
+   * @param windowSize 每次映射的字节数，必须是128的正整数倍
+   */
+  public CityHashFile(int windowSize) {
+    if (windowSize < BLOCK_SIZE || windowSize % BLOCK_SIZE != 0) {
+      throw new IllegalArgumentException("windowSize must be a positive multiple of " + BLOCK_SIZE + ": " + windowSize);
+    }
+    this.windowSize = windowSize;
+  }
+
+  public long hash64(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return hash64(channel);
+    }
+  }
+
+  public Number128 hash128(Path file) throws IOException {
+    Number128 result = new Number128(0L, 0L);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      hash128(channel, result);
+    }
+    return result;
+  }
+
+  public Number128 hash128WithSeed(Path file, final Number128 seed) throws IOException {
+    Number128 result = new Number128(0L, 0L);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      hash128WithSeed(channel, seed.getLowValue(), seed.getHiValue(), result);
+    }
+    return result;
+  }
+
+  /**
+   * 计算channel中[0, size)全部数据的hash64
+   *
+   * @param channel
+   * @return
+   * @throws IOException
+   */
+  public long hash64(FileChannel channel) throws IOException {
+    long len = channel.size();
+    if (len <= windowSize) {
+      return CITY_HASH.hash64(map(channel, 0, len));
+    }
+
+    final ByteSource src = ByteSource.BUFFER;
+    // 与CityHash.hash64相同，先处理最后64字节
+    ByteBuffer tail = map(channel, len - 64, 64);
+    long x = src.fetch64(tail, 24);
+    long y = src.fetch64(tail, 48) + src.fetch64(tail, 8);
+    long z = hashLen16(src.fetch64(tail, 16) + len, src.fetch64(tail, 40));
+    long a = len + src.fetch64(tail, 0);
+    long b = rotate(z + a + src.fetch64(tail, 24), 21);
+    long c = a;
+    a += src.fetch64(tail, 8) + src.fetch64(tail, 16);
+    long vLow = a + src.fetch64(tail, 24);
+    long vHi = b + rotate(a, 44) + c;
+    a = y + k1 + src.fetch64(tail, 32);
+    b = rotate(x + a + src.fetch64(tail, 56), 21);
+    c = a;
+    a += src.fetch64(tail, 40) + src.fetch64(tail, 48);
+    long wLow = a + src.fetch64(tail, 56);
+    long wHi = b + rotate(a, 44) + c;
+    x = x * k1 + src.fetch64(map(channel, 0, 8), 0);
+
+    long loopLen = (len - 1) & ~63L;
+    for (long windowStart = 0; windowStart < loopLen; windowStart += windowSize) {
+      int size = (int) Math.min(windowSize, loopLen - windowStart);
+      ByteBuffer window = map(channel, windowStart, size);
+      for (int pos = 0; pos < size; pos += 64) {
+        x = rotate(x + y + vLow + src.fetch64(window, pos + 8), 37) * k1;
+        y = rotate(y + vHi + src.fetch64(window, pos + 48), 42) * k1;
+        x ^= wHi;
+        y += vLow + src.fetch64(window, pos + 40);
+        z = rotate(z + wLow, 33) * k1;
+        a = vHi * k1 + src.fetch64(window, pos);
+        b = rotate(x + wLow + a + src.fetch64(window, pos + 24), 21);
+        c = a;
+        a += src.fetch64(window, pos + 8) + src.fetch64(window, pos + 16);
+        vLow = a + src.fetch64(window, pos + 24);
+        vHi = b + rotate(a, 44) + c;
+        a = z + wHi + src.fetch64(window, pos + 32);
+        b = rotate(y + src.fetch64(window, pos + 16) + a + src.fetch64(window, pos + 56), 21);
+        c = a;
+        a += src.fetch64(window, pos + 40) + src.fetch64(window, pos + 48);
+        wLow = a + src.fetch64(window, pos + 56);
+        wHi = b + rotate(a, 44) + c;
+        long swapValue = x;
+        x = z;
+        z = swapValue;
+      }
+    }
+    return hashLen16(hashLen16(vLow, wLow) + shiftMix(y) * k1 + z,
+            hashLen16(vHi, wHi) + x);
+  }
+
+  /**
+   * 计算channel中[0, size)全部数据的hash128，结果写入out
+   *
+   * @param channel
+   * @param out
+   * @throws IOException
+   */
+  public void hash128(FileChannel channel, final Number128 out) throws IOException {
+    long len = channel.size();
+    if (len >= 16) {
+      ByteBuffer head = map(channel, 0, 16);
+      hash128WithSeed(channel, 16, len - 16,
+              ByteSource.BUFFER.fetch64(head, 0), ByteSource.BUFFER.fetch64(head, 8) + k0, out);
+    } else {
+      hash128WithSeed(channel, 0, len, k0, k1, out);
+    }
+  }
+
+  /**
+   * 计算channel中[0, size)全部数据的hash128WithSeed，结果写入out
+   *
+   * @param channel
+   * @param seedLow 种子的低64位
+   * @param seedHi 种子的高64位
+   * @param out
+   * @throws IOException
+   */
+  public void hash128WithSeed(FileChannel channel, long seedLow, long seedHi, final Number128 out) throws IOException {
+    hash128WithSeed(channel, 0, channel.size(), seedLow, seedHi, out);
+  }
+
+  private void hash128WithSeed(FileChannel channel, long start, long len, long seedLow, long seedHi,
+                               final Number128 out) throws IOException {
+    if (len <= windowSize) {
+      CITY_HASH.hash128WithSeed(map(channel, start, len), seedLow, seedHi, out);
+      return;
+    }
+
+    final ByteSource src = ByteSource.BUFFER;
+    // 与CityHash.hash128WithSeed相同，len一定大于128
+    ByteBuffer head = map(channel, start, 96);
+    long x = seedLow;
+    long y = seedHi;
+    long z = len * k1;
+    long vLow = rotate(y ^ k1, 49) * k1 + src.fetch64(head, 0);
+    long vHi = rotate(vLow, 42) * k1 + src.fetch64(head, 8);
+    long wLow = rotate(y + z, 35) * k1 + x;
+    long wHi = rotate(x + src.fetch64(head, 88), 53) * k1;
+    long a;
+    long b;
+    long c;
+
+    long loopLen = len & ~127L;
+    for (long windowStart = 0; windowStart < loopLen; windowStart += windowSize) {
+      int size = (int) Math.min(windowSize, loopLen - windowStart);
+      ByteBuffer window = map(channel, start + windowStart, size);
+      for (int pos = 0; pos < size; pos += 64) {
+        x = rotate(x + y + vLow + src.fetch64(window, pos + 8), 37) * k1;
+        y = rotate(y + vHi + src.fetch64(window, pos + 48), 42) * k1;
+        x ^= wHi;
+        y += vLow + src.fetch64(window, pos + 40);
+        z = rotate(z + wLow, 33) * k1;
+        a = vHi * k1 + src.fetch64(window, pos);
+        b = rotate(x + wLow + a + src.fetch64(window, pos + 24), 21);
+        c = a;
+        a += src.fetch64(window, pos + 8) + src.fetch64(window, pos + 16);
+        vLow = a + src.fetch64(window, pos + 24);
+        vHi = b + rotate(a, 44) + c;
+        a = z + wHi + src.fetch64(window, pos + 32);
+        b = rotate(y + src.fetch64(window, pos + 16) + a + src.fetch64(window, pos + 56), 21);
+        c = a;
+        a += src.fetch64(window, pos + 40) + src.fetch64(window, pos + 48);
+        wLow = a + src.fetch64(window, pos + 56);
+        wHi = b + rotate(a, 44) + c;
+        long swapValue = x;
+        x = z;
+        z = swapValue;
+      }
+    }
+    x += rotate(vLow + z, 49) * k0;
+    y = y * k0 + rotate(wHi, 37);
+    z = z * k0 + rotate(wLow, 27);
+    wLow *= 9;
+    vLow *= k0;
+
+    // 剩余不足128字节，从最后128字节中按32字节一块倒序处理
+    int remain = (int) (len - loopLen);
+    ByteBuffer tail = map(channel, start + len - BLOCK_SIZE, BLOCK_SIZE);
+    for (int tail_done = 0; tail_done < remain; ) {
+      tail_done += 32;
+      int tailPos = BLOCK_SIZE - tail_done;
+      y = rotate(x + y, 42) * k0 + vHi;
+      wLow += src.fetch64(tail, tailPos + 16);
+      x = x * k0 + wLow;
+      z += wHi + src.fetch64(tail, tailPos);
+      wHi += vLow;
+      a = vLow + z + src.fetch64(tail, tailPos);
+      b = rotate(vHi + a + src.fetch64(tail, tailPos + 24), 21);
+      c = a;
+      a += src.fetch64(tail, tailPos + 8) + src.fetch64(tail, tailPos + 16);
+      vLow = (a + src.fetch64(tail, tailPos + 24)) * k0;
+      vHi = b + rotate(a, 44) + c;
+    }
+    x = hashLen16(x, vLow);
+    y = hashLen16(y + z, wLow);
+    out.setLowValue(hashLen16(x + vHi, wHi) + y);
+    out.setHiValue(hashLen16(x + wHi, y + vHi));
+  }
+
+  private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+    return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+  }
+}
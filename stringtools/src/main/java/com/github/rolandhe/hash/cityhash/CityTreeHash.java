@@ -0,0 +1,177 @@
+package com.github.rolandhe.hash.cityhash;
+
+import com.github.rolandhe.hash.Number128;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 基于cityhash128的树形hash，用于超大数据的并行计算。结果与普通的cityhash不同，但是与线程数无关，格式固定不变：
+ * <pre>
+ *   数据按chunkSize切分成n块，最后一块可以不足chunkSize，空数据n = 0
+ *   leaf[i] = CityHash128WithSeed(chunk[i], seed = (low: i, hi: LEAF_SEED))
+ *   leaves  = leaf[0].low, leaf[0].hi, leaf[1].low, leaf[1].hi ... 每个值按小端8字节顺序拼接
+ *   digest  = CityHash128WithSeed(leaves, seed = (low: 数据总长度, hi: chunkSize))
+ * </pre>
+ * 各个块在ForkJoinPool中并行计算，最后按顺序合并。chunkSize是结果的一部分，不同chunkSize的结果不能互相比较。
+ *
+ */
+public class CityTreeHash {
+  /**
+   * 默认块大小，1M
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+  /**
+   * 叶子节点种子的高64位
+   */
+  public static final long LEAF_SEED = 0x6c656166L;
+
+  private static final CityHash CITY_HASH = new CityHash();
+
+  private final int chunkSize;
+  private final ForkJoinPool pool;
+
+  public CityTreeHash() {
+    this(DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @param chunkSize 块大小，必须是正数
+   * @param pool 计算各个块的线程池
+   */
+  public CityTreeHash(int chunkSize, ForkJoinPool pool) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+    }
+    this.chunkSize = chunkSize;
+    this.pool = Objects.requireNonNull(pool);
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  public Number128 hash128(byte[] bytes, int offset, int length) {
+    Objects.checkFromIndexSize(offset, length, bytes.length);
+    return hash128(length, (chunkStart, chunkLength, seedLow, out) ->
+            CITY_HASH.hash128WithSeed(bytes, offset + (int) chunkStart, chunkLength, seedLow, LEAF_SEED, out));
+  }
+
+  /**
+   * 计算buffer中[position, limit)区间的数据，不改变buffer的position
+   *
+   * @param buffer
+   * @return
+   */
+  public Number128 hash128(ByteBuffer buffer) {
+    int position = buffer.position();
+    return hash128(buffer.remaining(), (chunkStart, chunkLength, seedLow, out) -> {
+      ByteBuffer chunk = buffer.duplicate();
+      chunk.limit(position + (int) chunkStart + chunkLength).position(position + (int) chunkStart);
+      CITY_HASH.hash128WithSeed(chunk, seedLow, LEAF_SEED, out);
+    });
+  }
+
+  public Number128 hash128(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return hash128(channel);
+    }
+  }
+
+  /**
+   * 计算channel中[0, size)全部数据，每个块单独映射后计算
+   *
+   * @param channel
+   * @return
+   * @throws IOException
+   */
+  public Number128 hash128(FileChannel channel) throws IOException {
+    try {
+      return hash128(channel.size(), (chunkStart, chunkLength, seedLow, out) -> {
+        try {
+          ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, chunkLength);
+          CITY_HASH.hash128WithSeed(chunk, seedLow, LEAF_SEED, out);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private Number128 hash128(long length, LeafHasher leafHasher) {
+    long chunkCount = (length + chunkSize - 1) / chunkSize;
+    if (chunkCount > Integer.MAX_VALUE / 16) {
+      throw new IllegalArgumentException("too many chunks: " + chunkCount + ", increase chunkSize");
+    }
+    byte[] leaves = new byte[(int) chunkCount * 16];
+    if (chunkCount > 0) {
+      pool.invoke(new LeafTask(length, chunkSize, leafHasher, leaves, 0, (int) chunkCount));
+    }
+    Number128 result = new Number128(0L, 0L);
+    CITY_HASH.hash128WithSeed(leaves, 0, leaves.length, length, chunkSize, result);
+    return result;
+  }
+
+  /**
+   * 计算单个块的hash
+   */
+  @FunctionalInterface
+  private interface LeafHasher {
+    void hash(long chunkStart, int chunkLength, long seedLow, Number128 out);
+  }
+
+  /**
+   * 计算[from, to)区间内的块，块数超过1时一分为二
+   */
+  private static final class LeafTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final long length;
+    private final int chunkSize;
+    private final LeafHasher leafHasher;
+    private final byte[] leaves;
+    private final int from;
+    private final int to;
+
+    LeafTask(long length, int chunkSize, LeafHasher leafHasher, byte[] leaves, int from, int to) {
+      this.length = length;
+      this.chunkSize = chunkSize;
+      this.leafHasher = leafHasher;
+      this.leaves = leaves;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > 1) {
+        int middle = (from + to) >>> 1;
+        invokeAll(new LeafTask(length, chunkSize, leafHasher, leaves, from, middle),
+                new LeafTask(length, chunkSize, leafHasher, leaves, middle, to));
+        return;
+      }
+      long chunkStart = (long) from * chunkSize;
+      int chunkLength = (int) Math.min(chunkSize, length - chunkStart);
+      Number128 leaf = new Number128(0L, 0L);
+      leafHasher.hash(chunkStart, chunkLength, from, leaf);
+      writeLong(leaves, from * 16, leaf.getLowValue());
+      writeLong(leaves, from * 16 + 8, leaf.getHiValue());
+    }
+  }
+
+  private static void writeLong(byte[] dst, int pos, long value) {
+    for (int i = 0; i < 8; i++) {
+      dst[pos + i] = (byte) (value >>> (i * 8));
+    }
+  }
+}
@@ -0,0 +1,190 @@
+package com.github.rolandhe.hash.cityhash;
+
+import com.github.rolandhe.hash.Number128;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 增量cityhash，适用于由多个部分组成的key，无需先把各部分拼接成一个String。
+ * 所有put进来的数据按顺序缓存在内部的byte数组中，hash结果与{@link CityHash}对拼接后的字节计算的结果完全相同：
+ * <ul>
+ *     <li>putString按UTF-8编码</li>
+ *     <li>putInt/putLong按小端写入4/8字节</li>
+ * </ul>
+ * 调用{@link #reset()}后可以重复使用，内部缓存不会释放，因此每个线程持有一个实例即可避免创建临时对象。
+ * 非线程安全。
+ *
+ */
+public class Hasher {
+  private static final int DEFAULT_CAPACITY = 64;
+  private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+  /**
+   * putString每次编码的最大字符数，缓存只按这一段的最坏情况预留空间，不按整个字符串的3倍预留
+   */
+  private static final int CHUNK_CHARS = 4096;
+  private static final CityHash CITY_HASH = new CityHash();
+
+  private byte[] buffer;
+  private int count;
+
+  public Hasher() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param initialCapacity 内部缓存的初始大小
+   */
+  public Hasher(int initialCapacity) {
+    if (initialCapacity < 0) {
+      throw new IllegalArgumentException("initialCapacity must not be negative: " + initialCapacity);
+    }
+    this.buffer = new byte[initialCapacity];
+  }
+
+  public Hasher putBytes(byte[] bytes) {
+    return putBytes(bytes, 0, bytes.length);
+  }
+
+  public Hasher putBytes(byte[] bytes, int offset, int length) {
+    Objects.checkFromIndexSize(offset, length, bytes.length);
+    ensureCapacity(length);
+    System.arraycopy(bytes, offset, buffer, count, length);
+    count += length;
+    return this;
+  }
+
+  /**
+   * 写入buffer中[position, limit)区间的数据，不改变buffer的position
+   *
+   * @param bytes
+   * @return
+   */
+  public Hasher putBytes(ByteBuffer bytes) {
+    int length = bytes.remaining();
+    ensureCapacity(length);
+    // 在副本上批量读取，不改变bytes的position，direct buffer也不会逐字节拷贝
+    bytes.duplicate().get(buffer, count, length);
+    count += length;
+    return this;
+  }
+
+  /**
+   * 按UTF-8编码写入。缓存放不下时抛出IllegalStateException，失败时已经写入的数据不变
+   *
+   * @param s
+   * @return
+   */
+  public Hasher putString(CharSequence s) {
+    int length = s.length();
+    // 每个字符至少编码成1个字节，肯定放不下时直接失败
+    checkLimit((long) count + length);
+    int saved = count;
+    try {
+      for (int start = 0; start < length; ) {
+        int end = Utf8.chunkEnd(s, start, length, CHUNK_CHARS);
+        ensureCapacity(Utf8.maxEncodedLength(start, end));
+        count = Utf8.encode(s, start, end, buffer, count);
+        start = end;
+      }
+    } catch (RuntimeException e) {
+      // 前面的分段已经写入，丢弃这个字符串的部分内容，避免之后hash一个截断的输入
+      count = saved;
+      throw e;
+    }
+    return this;
+  }
+
+  /**
+   * 按小端写入4字节
+   *
+   * @param value
+   * @return
+   */
+  public Hasher putInt(int value) {
+    ensureCapacity(4);
+    for (int i = 0; i < 4; i++) {
+      buffer[count++] = (byte) (value >>> (i * 8));
+    }
+    return this;
+  }
+
+  /**
+   * 按小端写入8字节
+   *
+   * @param value
+   * @return
+   */
+  public Hasher putLong(long value) {
+    ensureCapacity(8);
+    for (int i = 0; i < 8; i++) {
+      buffer[count++] = (byte) (value >>> (i * 8));
+    }
+    return this;
+  }
+
+  public int hash32() {
+    return CITY_HASH.hash32(buffer, 0, count);
+  }
+
+  public long hash64() {
+    return CITY_HASH.hash64(buffer, 0, count);
+  }
+
+  public long hash64WithSeed(long seed) {
+    return CITY_HASH.hash64WithSeed(buffer, 0, count, seed);
+  }
+
+  public long hash64WithSeeds(long seed0, long seed1) {
+    return CITY_HASH.hash64WithSeeds(buffer, 0, count, seed0, seed1);
+  }
+
+  public Number128 hash128() {
+    return CITY_HASH.hash128(buffer, 0, count);
+  }
+
+  /**
+   * 结果写入out，可复用out避免创建对象
+   *
+   * @param out
+   */
+  public void hash128(final Number128 out) {
+    CITY_HASH.hash128(buffer, 0, count, out);
+  }
+
+  /**
+   * 已经写入的字节数
+   *
+   * @return
+   */
+  public int size() {
+    return count;
+  }
+
+  /**
+   * 清除已写入的数据，保留内部缓存以便复用
+   *
+   * @return
+   */
+  public Hasher reset() {
+    count = 0;
+    return this;
+  }
+
+  private void ensureCapacity(long more) {
+    if (more <= buffer.length - count) {
+      return;
+    }
+    long required = count + more;
+    checkLimit(required);
+    int newCapacity = (int) Math.min(Math.max((long) buffer.length << 1, required), MAX_CAPACITY);
+    buffer = Arrays.copyOf(buffer, newCapacity);
+  }
+
+  private static void checkLimit(long required) {
+    if (required > MAX_CAPACITY) {
+      throw new IllegalStateException("hasher buffer exceed: " + required);
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package com.github.rolandhe.hash.cityhash;
+
+/**
+ * UTF-8编码工具，把字符直接编码到调用方提供的byte数组中，不创建临时对象。
+ * 编码结果与String.getBytes(StandardCharsets.UTF_8)完全相同，不成对的surrogate按照jdk的方式替换成'?'。
+ *
+ */
+final class Utf8 {
+  /**
+   * 不成对的surrogate的替换字符
+   */
+  private static final byte REPLACEMENT = (byte) '?';
+
+  private Utf8() {
+  }
+
+  /**
+   * 编码[start, end)区间内的字符时最多需要的字节数
+   *
+   * @param start
+   * @param end
+   * @return
+   */
+  static long maxEncodedLength(int start, int end) {
+    return (end - start) * 3L;
+  }
+
+  /**
+   * 从start开始分段编码时这一段的结束位置：不超过maxChars个字符，不把surrogate对拆到两段中
+   *
+   * @param s
+   * @param start
+   * @param end
+   * @param maxChars
+   * @return
+   */
+  static int chunkEnd(CharSequence s, int start, int end, int maxChars) {
+    if (end - start <= maxChars) {
+      return end;
+    }
+    int chunkEnd = start + maxChars;
+    if (Character.isHighSurrogate(s.charAt(chunkEnd - 1)) && Character.isLowSurrogate(s.charAt(chunkEnd))) {
+      chunkEnd++;
+    }
+    return chunkEnd;
+  }
+
+  /**
+   * 把[start, end)区间内的字符编码到dst的pos位置，dst必须有足够的空间
+   *
+   * @param s
+   * @param start
+   * @param end
+   * @param dst
+   * @param pos
+   * @return 编码完成后dst中下一个可写的位置
+   */
+  static int encode(CharSequence s, int start, int end, byte[] dst, int pos) {
+    int i = start;
+    // 大部分key是ASCII，先按单字节快速拷贝，遇到非ASCII字符后再按通用方式编码
+    for (; i < end; i++) {
+      char c = s.charAt(i);
+      if (c >= 0x80) {
+        break;
+      }
+      dst[pos++] = (byte) c;
+    }
+    for (; i < end; i++) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        dst[pos++] = (byte) c;
+      } else if (c < 0x800) {
+        dst[pos++] = (byte) (0xc0 | (c >>> 6));
+        dst[pos++] = (byte) (0x80 | (c & 0x3f));
+      } else if (Character.isSurrogate(c)) {
+        if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+          int codePoint = Character.toCodePoint(c, s.charAt(++i));
+          dst[pos++] = (byte) (0xf0 | (codePoint >>> 18));
+          dst[pos++] = (byte) (0x80 | ((codePoint >>> 12) & 0x3f));
+          dst[pos++] = (byte) (0x80 | ((codePoint >>> 6) & 0x3f));
+          dst[pos++] = (byte) (0x80 | (codePoint & 0x3f));
+        } else {
+          dst[pos++] = REPLACEMENT;
+        }
+      } else {
+        dst[pos++] = (byte) (0xe0 | (c >>> 12));
+        dst[pos++] = (byte) (0x80 | ((c >>> 6) & 0x3f));
+        dst[pos++] = (byte) (0x80 | (c & 0x3f));
+      }
+    }
+    return pos;
+  }
+}
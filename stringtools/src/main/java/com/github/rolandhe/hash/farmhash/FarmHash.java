@@ -0,0 +1,727 @@
+package com.github.rolandhe.hash.farmhash;
+
+import com.github.rolandhe.hash.Hashable;
+import com.github.rolandhe.hash.Number128;
+import com.github.rolandhe.hash.cityhash.CityHash;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * 迁移google farmhash的官方c++版本，结果与c++版本逐位相同，与平台无关：
+ * <ul>
+ *   <li>hash64系列：{@link Variant#NA}对应farmhashna(即Fingerprint64)，{@link Variant#UO}对应farmhashuo，
+ *   两者只在超过64字节时不同</li>
+ *   <li>hash32：farmhashmk::Hash32，即Fingerprint32</li>
+ *   <li>hash128系列：farmhashcc::CityHash128WithSeed，即Fingerprint128，与{@link CityHash}的128位结果相同</li>
+ * </ul>
+ * farmhash::Hash64在不同cpu上会选择不同的实现，跨语言比对时c++端应使用Fingerprint64或farmhashna/farmhashuo。
+ * 与{@link CityHash}一样，可以直接hash byte[]的某个区间或ByteBuffer中的剩余数据，数据不会被拷贝。
+ *
+ */
+public class FarmHash implements Hashable {
+
+  /**
+   * 64位hash的实现
+   */
+  public enum Variant {
+    /**
+     * farmhashna，farmhash::Fingerprint64、Hash64WithSeed(s)使用的实现
+     */
+    NA,
+    /**
+     * farmhashuo，超过64字节时每轮处理更多状态，长数据更快
+     */
+    UO
+  }
+
+  // Some primes between 2^63 and 2^64 for various uses.
+  private static final long k0 = 0xc3a5c85c97cb3127L;
+  private static final long k1 = 0xb492b66fbe98f273L;
+  private static final long k2 = 0x9ae16a3b2f90404fL;
+  private static final long kMul = 0x9ddfea08eb382d69L;
+
+  // Magic numbers for 32-bit hashing.  Copied from Murmur3.
+  private static final int c1 = 0xcc9e2d51;
+  private static final int c2 = 0x1b873593;
+
+  /**
+   * 128位的farmhashcc与cityhash v1.1完全相同，直接使用cityhash的实现
+   */
+  private static final CityHash CITY_HASH = new CityHash();
+
+  private final boolean uo;
+
+  public FarmHash() {
+    this(Variant.NA);
+  }
+
+  /**
+   * @param variant 64位hash使用的实现
+   */
+  public FarmHash(Variant variant) {
+    this.uo = Objects.requireNonNull(variant) == Variant.UO;
+  }
+
+  @Override
+  public int hash32(String raw) {
+    byte[] byteArray = convertString2UTF8(raw);
+    return hash32(ByteSource.ARRAY, byteArray, 0, byteArray.length);
+  }
+
+  @Override
+  public int hash32(byte[] bytes, int offset, int length) {
+    Objects.checkFromIndexSize(offset, length, bytes.length);
+    return hash32(ByteSource.ARRAY, bytes, offset, length);
+  }
+
+  @Override
+  public int hash32(ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      return hash32(ByteSource.ARRAY, buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    }
+    return hash32(ByteSource.BUFFER, buffer, buffer.position(), buffer.remaining());
+  }
+
+  /**
+   * 计算int按小端4字节的hash32，结果与hash对应的4字节相同，直接在寄存器中计算
+   *
+   * @param value
+   * @return
+   */
+  @Override
+  public int hash32(int value) {
+    // hash32Len0to4, len = 4
+    int b = 0;
+    int c = 9;
+    for (int i = 0; i < 4; i++) {
+      b = b * c1 + (byte) (value >>> (i * 8));
+      c ^= b;
+    }
+    return fmix(mur(b, mur(4, c)));
+  }
+
+  @Override
+  public long hash64(String raw) {
+    byte[] byteArray = convertString2UTF8(raw);
+    return hash64(ByteSource.ARRAY, byteArray, 0, byteArray.length);
+  }
+
+  @Override
+  public long hash64(byte[] bytes, int offset, int length) {
+    Objects.checkFromIndexSize(offset, length, bytes.length);
+    return hash64(ByteSource.ARRAY, bytes, offset, length);
+  }
+
+  @Override
+  public long hash64(ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      return hash64(ByteSource.ARRAY, buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    }
+    return hash64(ByteSource.BUFFER, buffer, buffer.position(), buffer.remaining());
+  }
+
+  /**
+   * 计算long按小端8字节的hash64，结果与hash对应的8字节相同，直接在寄存器中计算
+   *
+   * @param value
+   * @return
+   */
+  @Override
+  public long hash64(long value) {
+    // hashLen0to16, len = 8
+    long mul = k2 + 16;
+    long a = value + k2;
+    long c = rotate(value, 37) * mul + a;
+    long d = (rotate(a, 25) + value) * mul;
+    return hashLen16(c, d, mul);
+  }
+
+  /**
+   * 计算两个long按小端顺序拼接的16字节的hash64，结果与hash对应的16字节相同，直接在寄存器中计算
+   *
+   * @param value0 前8字节
+   * @param value1 后8字节
+   * @return
+   */
+  @Override
+  public long hash64(long value0, long value1) {
+    // hashLen0to16, len = 16
+    long mul = k2 + 32;
+    long a = value0 + k2;
+    long c = rotate(value1, 37) * mul + a;
+    long d = (rotate(a, 25) + value1) * mul;
+    return hashLen16(c, d, mul);
+  }
+
+  /**
+   * 计算long数组按小端顺序拼接的字节的hash64，结果与hash对应的字节相同。
+   * 1、2个元素直接在寄存器中计算，其余的转换成临时byte数组
+   *
+   * @param values
+   * @return
+   */
+  @Override
+  public long hash64(long[] values) {
+    if (values.length == 1) {
+      return hash64(values[0]);
+    }
+    if (values.length == 2) {
+      return hash64(values[0], values[1]);
+    }
+    if (values.length > Integer.MAX_VALUE / 8) {
+      throw new IllegalArgumentException("too many values: " + values.length);
+    }
+    int len = values.length * 8;
+    byte[] bytes = new byte[len];
+    for (int i = 0; i < values.length; i++) {
+      long value = values[i];
+      for (int j = 0; j < 8; j++) {
+        bytes[i * 8 + j] = (byte) (value >>> (j * 8));
+      }
+    }
+    return hash64(ByteSource.ARRAY, bytes, 0, len);
+  }
+
+  @Override
+  public long hash64WithSeeds(String raw, long seed0, long seed1) {
+    byte[] byteArray = convertString2UTF8(raw);
+    return hash64WithSeeds(ByteSource.ARRAY, byteArray, 0, byteArray.length, seed0, seed1);
+  }
+
+  @Override
+  public long hash64WithSeeds(byte[] bytes, int offset, int length, long seed0, long seed1) {
+    Objects.checkFromIndexSize(offset, length, bytes.length);
+    return hash64WithSeeds(ByteSource.ARRAY, bytes, offset, length, seed0, seed1);
+  }
+
+  @Override
+  public long hash64WithSeeds(ByteBuffer buffer, long seed0, long seed1) {
+    if (buffer.hasArray()) {
+      return hash64WithSeeds(ByteSource.ARRAY, buffer.array(), buffer.arrayOffset() + buffer.position(),
+              buffer.remaining(), seed0, seed1);
+    }
+    return hash64WithSeeds(ByteSource.BUFFER, buffer, buffer.position(), buffer.remaining(), seed0, seed1);
+  }
+
+  @Override
+  public long hash64WithSeed(String raw, long seed) {
+    byte[] byteArray = convertString2UTF8(raw);
+    return hash64WithSeed(ByteSource.ARRAY, byteArray, 0, byteArray.length, seed);
+  }
+
+  @Override
+  public long hash64WithSeed(byte[] bytes, int offset, int length, long seed) {
+    Objects.checkFromIndexSize(offset, length, bytes.length);
+    return hash64WithSeed(ByteSource.ARRAY, bytes, offset, length, seed);
+  }
+
+  @Override
+  public long hash64WithSeed(ByteBuffer buffer, long seed) {
+    if (buffer.hasArray()) {
+      return hash64WithSeed(ByteSource.ARRAY, buffer.array(), buffer.arrayOffset() + buffer.position(),
+              buffer.remaining(), seed);
+    }
+    return hash64WithSeed(ByteSource.BUFFER, buffer, buffer.position(), buffer.remaining(), seed);
+  }
+
+  @Override
+  public Number128 hash128(String raw) {
+    return CITY_HASH.hash128(raw);
+  }
+
+  @Override
+  public Number128 hash128(byte[] bytes, int offset, int length) {
+    return CITY_HASH.hash128(bytes, offset, length);
+  }
+
+  @Override
+  public Number128 hash128(ByteBuffer buffer) {
+    return CITY_HASH.hash128(buffer);
+  }
+
+  /**
+   * 与{@link #hash128(byte[], int, int)}相同，结果写入调用方提供的out，可复用out避免创建对象
+   *
+   * @param bytes
+   * @param offset
+   * @param length
+   * @param out 接收结果
+   */
+  public void hash128(byte[] bytes, int offset, int length, final Number128 out) {
+    CITY_HASH.hash128(bytes, offset, length, out);
+  }
+
+  /**
+   * 与{@link #hash128(ByteBuffer)}相同，结果写入调用方提供的out，可复用out避免创建对象
+   *
+   * @param buffer
+   * @param out 接收结果
+   */
+  public void hash128(ByteBuffer buffer, final Number128 out) {
+    CITY_HASH.hash128(buffer, out);
+  }
+
+  @Override
+  public Number128 hash128WithSeed(String raw, final Number128 seed) {
+    return CITY_HASH.hash128WithSeed(raw, seed);
+  }
+
+  @Override
+  public Number128 hash128WithSeed(byte[] bytes, int offset, int length, final Number128 seed) {
+    return CITY_HASH.hash128WithSeed(bytes, offset, length, seed);
+  }
+
+  @Override
+  public Number128 hash128WithSeed(ByteBuffer buffer, final Number128 seed) {
+    return CITY_HASH.hash128WithSeed(buffer, seed);
+  }
+
+  /**
+   * 与{@link #hash128WithSeed(byte[], int, int, Number128)}相同，种子以两个long传入，结果写入调用方提供的out
+   *
+   * @param bytes
+   * @param offset
+   * @param length
+   * @param seedLow 种子的低64位
+   * @param seedHi 种子的高64位
+   * @param out 接收结果
+   */
+  public void hash128WithSeed(byte[] bytes, int offset, int length, long seedLow, long seedHi, final Number128 out) {
+    CITY_HASH.hash128WithSeed(bytes, offset, length, seedLow, seedHi, out);
+  }
+
+  /**
+   * 与{@link #hash128WithSeed(ByteBuffer, Number128)}相同，种子以两个long传入，结果写入调用方提供的out
+   *
+   * @param buffer
+   * @param seedLow 种子的低64位
+   * @param seedHi 种子的高64位
+   * @param out 接收结果
+   */
+  public void hash128WithSeed(ByteBuffer buffer, long seedLow, long seedHi, final Number128 out) {
+    CITY_HASH.hash128WithSeed(buffer, seedLow, seedHi, out);
+  }
+
+  // farmhashmk::Hash32
+  private int hash32(final ByteSource src, final Object base, final int start, final int len) {
+    if (len <= 24) {
+      return len <= 12 ?
+              (len <= 4 ? hash32Len0to4(src, base, start, len) : hash32Len5to12(src, base, start, len)) :
+              hash32Len13to24(src, base, start, len);
+    }
+
+    // len > 24
+    int end = start + len;
+    int h = len, g = c1 * len, f = g;
+    int a0 = rotate32(src.fetch32(base, end - 4) * c1, 17) * c2;
+    int a1 = rotate32(src.fetch32(base, end - 8) * c1, 17) * c2;
+    int a2 = rotate32(src.fetch32(base, end - 16) * c1, 17) * c2;
+    int a3 = rotate32(src.fetch32(base, end - 12) * c1, 17) * c2;
+    int a4 = rotate32(src.fetch32(base, end - 20) * c1, 17) * c2;
+    h ^= a0;
+    h = rotate32(h, 19);
+    h = h * 5 + 0xe6546b64;
+    h ^= a2;
+    h = rotate32(h, 19);
+    h = h * 5 + 0xe6546b64;
+    g ^= a1;
+    g = rotate32(g, 19);
+    g = g * 5 + 0xe6546b64;
+    g ^= a3;
+    g = rotate32(g, 19);
+    g = g * 5 + 0xe6546b64;
+    f += a4;
+    f = rotate32(f, 19) + 113;
+    int iters = (len - 1) / 20;
+    int pos = start;
+    do {
+      int a = src.fetch32(base, pos);
+      int b = src.fetch32(base, pos + 4);
+      int c = src.fetch32(base, pos + 8);
+      int d = src.fetch32(base, pos + 12);
+      int e = src.fetch32(base, pos + 16);
+      h += a;
+      g += b;
+      f += c;
+      h = mur(d, h) + e;
+      g = mur(c, g) + a;
+      f = mur(b + e * c1, f) + d;
+      f += g;
+      g += f;
+      pos += 20;
+    } while (--iters != 0);
+    g = rotate32(g, 11) * c1;
+    g = rotate32(g, 17) * c1;
+    f = rotate32(f, 11) * c1;
+    f = rotate32(f, 17) * c1;
+    h = rotate32(h + g, 19);
+    h = h * 5 + 0xe6546b64;
+    h = rotate32(h, 17) * c1;
+    h = rotate32(h + f, 19);
+    h = h * 5 + 0xe6546b64;
+    h = rotate32(h, 17) * c1;
+    return h;
+  }
+
+  private int hash32Len0to4(final ByteSource src, final Object base, final int start, final int len) {
+    int b = 0;
+    int c = 9;
+    for (int i = 0; i < len; i++) {
+      int v = src.get(base, start + i);
+      b = b * c1 + v;
+      c ^= b;
+    }
+    return fmix(mur(b, mur(len, c)));
+  }
+
+  private int hash32Len5to12(final ByteSource src, final Object base, final int start, final int len) {
+    int a = len, b = len * 5, c = 9, d = b;
+    a += src.fetch32(base, start);
+    b += src.fetch32(base, start + len - 4);
+    c += src.fetch32(base, start + ((len >>> 1) & 4));
+    return fmix(mur(c, mur(b, mur(a, d))));
+  }
+
+  private int hash32Len13to24(final ByteSource src, final Object base, final int start, final int len) {
+    int a = src.fetch32(base, start - 4 + (len >>> 1));
+    int b = src.fetch32(base, start + 4);
+    int c = src.fetch32(base, start + len - 8);
+    int d = src.fetch32(base, start + (len >>> 1));
+    int e = src.fetch32(base, start);
+    int f = src.fetch32(base, start + len - 4);
+    int h = d * c1 + len;
+    a = rotate32(a, 12) + f;
+    h = mur(c, h) + a;
+    a = rotate32(a, 3) + c;
+    h = mur(e, h) + a;
+    a = rotate32(a + f, 12) + d;
+    h = mur(b, h) + a;
+    return fmix(h);
+  }
+
+  private long hash64(final ByteSource src, final Object base, final int start, final int len) {
+    if (uo && len > 64) {
+      return uoHash64WithSeeds(src, base, start, len, 81, 0);
+    }
+    return naHash64(src, base, start, len);
+  }
+
+  private long hash64WithSeeds(final ByteSource src, final Object base, final int start, final int len,
+                               long seed0, long seed1) {
+    if (uo && len > 64) {
+      return uoHash64WithSeeds(src, base, start, len, seed0, seed1);
+    }
+    return hashLen16(naHash64(src, base, start, len) - seed0, seed1);
+  }
+
+  private long hash64WithSeed(final ByteSource src, final Object base, final int start, final int len, long seed) {
+    if (uo && len > 64) {
+      return uoHash64WithSeeds(src, base, start, len, 0, seed);
+    }
+    return hashLen16(naHash64(src, base, start, len) - k2, seed);
+  }
+
+  // farmhashna::Hash64
+  private long naHash64(final ByteSource src, final Object base, final int start, final int len) {
+    if (len <= 32) {
+      if (len <= 16) {
+        return hashLen0to16(src, base, start, len);
+      } else {
+        return hashLen17to32(src, base, start, len);
+      }
+    } else if (len <= 64) {
+      return hashLen33to64(src, base, start, len);
+    }
+
+    // For strings over 64 bytes we loop.  Internal state consists of
+    // 56 bytes: v, w, x, y, and z.
+    final long seed = 81;
+    long x = seed;
+    long y = seed * k1 + 113;
+    long z = shiftMix(y * k2 + 113) * k2;
+    long vLow = 0, vHi = 0, wLow = 0, wHi = 0;
+    long a, b, c;
+    x = x * k2 + src.fetch64(base, start);
+
+    // Set end so that after the loop we have 1 to 64 bytes left to process.
+    int end = start + ((len - 1) / 64) * 64;
+    int last64 = start + len - 64;
+    int pos = start;
+    do {
+      x = rotate(x + y + vLow + src.fetch64(base, pos + 8), 37) * k1;
+      y = rotate(y + vHi + src.fetch64(base, pos + 48), 42) * k1;
+      x ^= wHi;
+      y += vLow + src.fetch64(base, pos + 40);
+      z = rotate(z + wLow, 33) * k1;
+      // v = WeakHashLen32WithSeeds(s, v.second * k1, x + w.first)
+      a = vHi * k1 + src.fetch64(base, pos);
+      b = rotate(x + wLow + a + src.fetch64(base, pos + 24), 21);
+      c = a;
+      a += src.fetch64(base, pos + 8) + src.fetch64(base, pos + 16);
+      vLow = a + src.fetch64(base, pos + 24);
+      vHi = b + rotate(a, 44) + c;
+      // w = WeakHashLen32WithSeeds(s + 32, z + w.second, y + Fetch(s + 16))
+      a = z + wHi + src.fetch64(base, pos + 32);
+      b = rotate(y + src.fetch64(base, pos + 16) + a + src.fetch64(base, pos + 56), 21);
+      c = a;
+      a += src.fetch64(base, pos + 40) + src.fetch64(base, pos + 48);
+      wLow = a + src.fetch64(base, pos + 56);
+      wHi = b + rotate(a, 44) + c;
+      // swap z,x value
+      long swapValue = x;
+      x = z;
+      z = swapValue;
+      pos += 64;
+    } while (pos != end);
+    long mul = k1 + ((z & 0xff) << 1);
+    // Make s point to the last 64 bytes of input.
+    pos = last64;
+    wLow += ((len - 1) & 63);
+    vLow += wLow;
+    wLow += vLow;
+    x = rotate(x + y + vLow + src.fetch64(base, pos + 8), 37) * mul;
+    y = rotate(y + vHi + src.fetch64(base, pos + 48), 42) * mul;
+    x ^= wHi * 9;
+    y += vLow * 9 + src.fetch64(base, pos + 40);
+    z = rotate(z + wLow, 33) * mul;
+    // v = WeakHashLen32WithSeeds(s, v.second * mul, x + w.first)
+    a = vHi * mul + src.fetch64(base, pos);
+    b = rotate(x + wLow + a + src.fetch64(base, pos + 24), 21);
+    c = a;
+    a += src.fetch64(base, pos + 8) + src.fetch64(base, pos + 16);
+    vLow = a + src.fetch64(base, pos + 24);
+    vHi = b + rotate(a, 44) + c;
+    // w = WeakHashLen32WithSeeds(s + 32, z + w.second, y + Fetch(s + 16))
+    a = z + wHi + src.fetch64(base, pos + 32);
+    b = rotate(y + src.fetch64(base, pos + 16) + a + src.fetch64(base, pos + 56), 21);
+    c = a;
+    a += src.fetch64(base, pos + 40) + src.fetch64(base, pos + 48);
+    wLow = a + src.fetch64(base, pos + 56);
+    wHi = b + rotate(a, 44) + c;
+    // swap z,x value
+    long swapValue = x;
+    x = z;
+    z = swapValue;
+    return hashLen16(hashLen16(vLow, wLow, mul) + shiftMix(y) * k0 + z,
+            hashLen16(vHi, wHi, mul) + x,
+            mul);
+  }
+
+  // farmhashuo::Hash64WithSeeds, len > 64
+  private long uoHash64WithSeeds(final ByteSource src, final Object base, final int start, final int len,
+                                 long seed0, long seed1) {
+    // For strings over 64 bytes we loop.  Internal state consists of
+    // 64 bytes: u, v, w, x, y, and z.
+    long x = seed0;
+    long y = seed1 * k2 + 113;
+    long z = shiftMix(y * k2) * k2;
+    long vLow = seed0, vHi = seed1, wLow = 0, wHi = 0;
+    long u = x - z;
+    x *= k2;
+    long mul = k2 + (u & 0x82);
+    long a, b, c, swapValue;
+
+    // Set end so that after the loop we have 1 to 64 bytes left to process.
+    int end = start + ((len - 1) / 64) * 64;
+    int last64 = start + len - 64;
+    int pos = start;
+    do {
+      long a0 = src.fetch64(base, pos);
+      long a1 = src.fetch64(base, pos + 8);
+      long a2 = src.fetch64(base, pos + 16);
+      long a3 = src.fetch64(base, pos + 24);
+      long a4 = src.fetch64(base, pos + 32);
+      long a5 = src.fetch64(base, pos + 40);
+      long a6 = src.fetch64(base, pos + 48);
+      long a7 = src.fetch64(base, pos + 56);
+      x += a0 + a1;
+      y += a2;
+      z += a3;
+      vLow += a4;
+      vHi += a5 + a1;
+      wLow += a6;
+      wHi += a7;
+
+      x = rotate(x, 26);
+      x *= 9;
+      y = rotate(y, 29);
+      z *= mul;
+      vLow = rotate(vLow, 33);
+      vHi = rotate(vHi, 30);
+      wLow ^= x;
+      wLow *= 9;
+      z = rotate(z, 32);
+      z += wHi;
+      wHi += z;
+      z *= 9;
+      // swap u,y value
+      swapValue = u;
+      u = y;
+      y = swapValue;
+
+      z += a0 + a6;
+      vLow += a2;
+      vHi += a3;
+      wLow += a4;
+      wHi += a5 + a6;
+      x += a1;
+      y += a7;
+
+      y += vLow;
+      vLow += x - y;
+      vHi += wLow;
+      wLow += vHi;
+      wHi += x - y;
+      x += wHi;
+      wHi = rotate(wHi, 34);
+      // swap u,z value
+      swapValue = u;
+      u = z;
+      z = swapValue;
+      pos += 64;
+    } while (pos != end);
+    // Make s point to the last 64 bytes of input.
+    pos = last64;
+    u *= 9;
+    vHi = rotate(vHi, 28);
+    vLow = rotate(vLow, 20);
+    wLow += ((len - 1) & 63);
+    u += y;
+    y += u;
+    x = rotate(y - x + vLow + src.fetch64(base, pos + 8), 37) * mul;
+    y = rotate(y ^ vHi ^ src.fetch64(base, pos + 48), 42) * mul;
+    x ^= wHi * 9;
+    y += vLow + src.fetch64(base, pos + 40);
+    z = rotate(z + wLow, 33) * mul;
+    // v = WeakHashLen32WithSeeds(s, v.second * mul, x + w.first)
+    a = vHi * mul + src.fetch64(base, pos);
+    b = rotate(x + wLow + a + src.fetch64(base, pos + 24), 21);
+    c = a;
+    a += src.fetch64(base, pos + 8) + src.fetch64(base, pos + 16);
+    vLow = a + src.fetch64(base, pos + 24);
+    vHi = b + rotate(a, 44) + c;
+    // w = WeakHashLen32WithSeeds(s + 32, z + w.second, y + Fetch(s + 16))
+    a = z + wHi + src.fetch64(base, pos + 32);
+    b = rotate(y + src.fetch64(base, pos + 16) + a + src.fetch64(base, pos + 56), 21);
+    c = a;
+    a += src.fetch64(base, pos + 40) + src.fetch64(base, pos + 48);
+    wLow = a + src.fetch64(base, pos + 56);
+    wHi = b + rotate(a, 44) + c;
+    return uoH(hashLen16(vLow + x, wLow ^ y, mul) + z - u,
+            uoH(vHi + y, wHi + z, k2, 30) ^ x,
+            k2,
+            31);
+  }
+
+  private long hashLen0to16(final ByteSource src, final Object base, final int start, final int len) {
+    if (len >= 8) {
+      long mul = k2 + len * 2;
+      long a = src.fetch64(base, start) + k2;
+      long b = src.fetch64(base, start + len - 8);
+      long c = rotate(b, 37) * mul + a;
+      long d = (rotate(a, 25) + b) * mul;
+      return hashLen16(c, d, mul);
+    }
+    if (len >= 4) {
+      long mul = k2 + len * 2;
+      long a = src.fetch32(base, start) & 0xffffffffL;
+      return hashLen16(len + (a << 3), src.fetch32(base, start + len - 4) & 0xffffffffL, mul);
+    }
+    if (len > 0) {
+      int a = src.get(base, start) & 0xff;
+      int b = src.get(base, start + (len >>> 1)) & 0xff;
+      int c = src.get(base, start + len - 1) & 0xff;
+      int y = a + (b << 8);
+      int z = len + (c << 2);
+      return shiftMix(y * k2 ^ z * k0) * k2;
+    }
+    return k2;
+  }
+
+  // This probably works well for 16-byte strings as well, but it may be overkill
+  // in that case.
+  private long hashLen17to32(final ByteSource src, final Object base, final int start, final int len) {
+    long mul = k2 + len * 2;
+    long a = src.fetch64(base, start) * k1;
+    long b = src.fetch64(base, start + 8);
+    long c = src.fetch64(base, start + len - 8) * mul;
+    long d = src.fetch64(base, start + len - 16) * k2;
+    return hashLen16(rotate(a + b, 43) + rotate(c, 30) + d,
+            a + rotate(b + k2, 18) + c, mul);
+  }
+
+  // Return an 8-byte hash for 33 to 64 bytes.
+  private long hashLen33to64(final ByteSource src, final Object base, final int start, final int len) {
+    long mul = k2 + len * 2;
+    long a = src.fetch64(base, start) * k2;
+    long b = src.fetch64(base, start + 8);
+    long c = src.fetch64(base, start + len - 8) * mul;
+    long d = src.fetch64(base, start + len - 16) * k2;
+    long y = rotate(a + b, 43) + rotate(c, 30) + d;
+    long z = hashLen16(y, a + rotate(b + k2, 18) + c, mul);
+    long e = src.fetch64(base, start + 16) * mul;
+    long f = src.fetch64(base, start + 24);
+    long g = (y + src.fetch64(base, start + len - 32)) * mul;
+    long h = (z + src.fetch64(base, start + len - 24)) * mul;
+    return hashLen16(rotate(e + f, 43) + rotate(g, 30) + h,
+            e + rotate(f + a, 18) + g, mul);
+  }
+
+  private static long rotate(long val, int shift) {
+    return Long.rotateRight(val, shift);
+  }
+
+  private static int rotate32(int val, int shift) {
+    return Integer.rotateRight(val, shift);
+  }
+
+  private static long hashLen16(long u, long v, long mul) {
+    // Murmur-inspired hashing.
+    long a = (u ^ v) * mul;
+    a ^= (a >>> 47);
+    long b = (v ^ a) * mul;
+    b ^= (b >>> 47);
+    b *= mul;
+    return b;
+  }
+
+  private static long hashLen16(long u, long v) {
+    return hashLen16(u, v, kMul);
+  }
+
+  private static long uoH(long x, long y, long mul, int r) {
+    long a = (x ^ y) * mul;
+    a ^= (a >>> 47);
+    long b = (y ^ a) * mul;
+    return rotate(b, r) * mul;
+  }
+
+  private static long shiftMix(long val) {
+    return val ^ (val >>> 47);
+  }
+
+  private static int fmix(int h) {
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  private static int mur(int a, int h) {
+    // Helper from Murmur3 for combining two 32-bit values.
+    a *= c1;
+    a = rotate32(a, 17);
+    a *= c2;
+    h ^= a;
+    h = rotate32(h, 19);
+    return h * 5 + 0xe6546b64;
+  }
+
+  private static byte[] convertString2UTF8(String raw) {
+    return raw.getBytes(StandardCharsets.UTF_8);
+  }
+}
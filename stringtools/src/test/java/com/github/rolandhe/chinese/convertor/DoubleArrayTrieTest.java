@@ -0,0 +1,116 @@
+package com.github.rolandhe.chinese.convertor;
+
+import com.github.rolandhe.chinese.convertor.trie.DoubleArrayTrie;
+import com.github.rolandhe.chinese.convertor.trie.TrieHelper;
+import com.github.rolandhe.chinese.convertor.trie.TrieNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 双数组字典树与HashMap字典树的转换结果完全相同
+ */
+public class DoubleArrayTrieTest {
+
+  @Test
+  public void testSimp2Trad() throws IOException {
+    assertSameOutput(new Simp2TradConvertor(), "dict/simp_to_trad_phrases.txt", "dict/simp_to_trad_characters.txt");
+  }
+
+  @Test
+  public void testTrad2Simp() throws IOException {
+    assertSameOutput(new Trad2SimpConvertor(), "dict/trad_to_simp_phrases.txt", "dict/trad_to_simp_characters.txt");
+  }
+
+  /**
+   * 不需要进入字典树匹配的字符，查表的结果与单独转换这个字符相同
+   */
+  @Test
+  public void testSingles() {
+    String[] files = {"dict/simp_to_trad_phrases.txt", "dict/simp_to_trad_characters.txt"};
+    final TrieNode root = TrieHelper.build(files);
+    ChineseConvertor expected = new AbstractChineseConvertor() {
+      @Override
+      protected TrieNode getRoot() {
+        return root;
+      }
+    };
+    DoubleArrayTrie trie = DoubleArrayTrie.build(root);
+    int direct = 0;
+    for (int c = 0; c <= Character.MAX_VALUE; c++) {
+      if (!trie.needsMatch((char) c)) {
+        direct++;
+        Assert.assertEquals(expected.convert(String.valueOf((char) c)), String.valueOf(trie.convertSingle((char) c)));
+      }
+    }
+    Assert.assertTrue(trie.needsMatch('\uD840'));
+    Assert.assertFalse(trie.needsMatch('a'));
+    Assert.assertTrue(direct > 50000);
+  }
+
+  private static void assertSameOutput(ChineseConvertor convertor, String... files) throws IOException {
+    final TrieNode root = TrieHelper.build(files);
+    ChineseConvertor expected = new AbstractChineseConvertor() {
+      @Override
+      protected TrieNode getRoot() {
+        return root;
+      }
+    };
+    List<String> words = new ArrayList<>();
+    for (String file : files) {
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+              DoubleArrayTrieTest.class.getClassLoader().getResourceAsStream(file), StandardCharsets.UTF_8))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          for (String word : line.trim().split("[\t ]")) {
+            if (!word.isEmpty()) {
+              words.add(word);
+            }
+          }
+        }
+      }
+    }
+    for (String word : words) {
+      Assert.assertEquals(expected.convert(word), convertor.convert(word));
+    }
+
+    // 随机拼接词、词的片段、ascii、增补字符和落单的代理字符
+    Random random = new Random(17);
+    String[] extras = {"abc", " ", "123", "𠀀", "😀", "\uD800", "\uDC00", "。"};
+    int changed = 0;
+    int unchanged = 0;
+    for (int round = 0; round < 20000; round++) {
+      StringBuilder text = new StringBuilder();
+      int parts = random.nextInt(8) + 1;
+      for (int i = 0; i < parts; i++) {
+        if (random.nextInt(4) == 0) {
+          text.append(extras[random.nextInt(extras.length)]);
+        } else {
+          String word = words.get(random.nextInt(words.size()));
+          text.append(word, 0, random.nextInt(3) == 0 ? 1 + random.nextInt(word.length()) : word.length());
+        }
+      }
+      String raw = text.toString();
+      String converted = convertor.convert(raw);
+      Assert.assertEquals(raw, expected.convert(raw), converted);
+      // 没有变化时返回原来的String
+      if (converted.equals(raw)) {
+        Assert.assertSame(raw, converted);
+        unchanged++;
+      } else {
+        changed++;
+      }
+    }
+    Assert.assertTrue(changed > 0 && unchanged > 0);
+    Assert.assertEquals("", convertor.convert(""));
+    String ascii = "iPhone 15 Pro Max 256GB";
+    Assert.assertSame(ascii, convertor.convert(ascii));
+  }
+}
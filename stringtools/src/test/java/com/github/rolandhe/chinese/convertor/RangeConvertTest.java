@@ -0,0 +1,100 @@
+package com.github.rolandhe.chinese.convertor;
+
+import com.github.rolandhe.chinese.convertor.trie.TrieHelper;
+import com.github.rolandhe.chinese.convertor.trie.TrieNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.CharBuffer;
+import java.util.Random;
+
+/**
+ * 按范围转换、写入调用方缓冲区的结果与convert(String)相同
+ */
+public class RangeConvertTest {
+  private static final String[] PARTS = {"简体", "中文", "转换", "头发", "发展", "乾", "斷", "情有獨鍾", "abc", " ", "123", "𠀀",
+          "😀", "\uD800", "\uDC00", "。"};
+
+  @Test
+  public void testSimp2Trad() throws IOException {
+    assertRanges(new Simp2TradConvertor());
+  }
+
+  @Test
+  public void testTrad2Simp() throws IOException {
+    assertRanges(new Trad2SimpConvertor());
+  }
+
+  /**
+   * 只提供HashMap字典树的子类使用接口的默认实现
+   */
+  @Test
+  public void testDefaultMethods() throws IOException {
+    final TrieNode root = TrieHelper.build("dict/trad_to_simp_phrases.txt", "dict/trad_to_simp_characters.txt");
+    assertRanges(new AbstractChineseConvertor() {
+      @Override
+      protected TrieNode getRoot() {
+        return root;
+      }
+    });
+  }
+
+  @Test
+  public void testSplitSurrogatePair() {
+    ChineseConvertor convertor = new Simp2TradConvertor();
+    String src = "发😀";
+    StringBuilder sb = new StringBuilder();
+    convertor.convert(src, 0, 2, sb);
+    Assert.assertEquals(convertor.convert(src.substring(0, 2)), sb.toString());
+  }
+
+  @Test
+  public void testDstTooSmall() {
+    ChineseConvertor convertor = new Simp2TradConvertor();
+    char[] src = "头发头发".toCharArray();
+    char[] dst = new char[3];
+    try {
+      convertor.convert(src, 0, src.length, dst, 0);
+      Assert.fail();
+    } catch (IndexOutOfBoundsException e) {
+      // expected
+    }
+    try {
+      convertor.convert(src, 2, 3, new char[8], 0);
+      Assert.fail();
+    } catch (IndexOutOfBoundsException e) {
+      // expected
+    }
+  }
+
+  private static void assertRanges(ChineseConvertor convertor) throws IOException {
+    Random random = new Random(23);
+    for (int round = 0; round < 5000; round++) {
+      StringBuilder text = new StringBuilder();
+      int parts = random.nextInt(8) + 1;
+      for (int i = 0; i < parts; i++) {
+        text.append(PARTS[random.nextInt(PARTS.length)]);
+      }
+      String src = text.toString();
+      int start = random.nextInt(src.length() + 1);
+      int end = start + random.nextInt(src.length() - start + 1);
+      String expected = convertor.convert(src.substring(start, end));
+
+      StringBuilder sb = new StringBuilder("head");
+      convertor.convert(new StringBuilder(src), start, end, sb);
+      Assert.assertEquals("head" + expected, sb.toString());
+
+      StringWriter writer = new StringWriter();
+      convertor.convert(CharBuffer.wrap(src), start, end, writer);
+      Assert.assertEquals(expected, writer.toString());
+
+      char[] chars = ("xx" + src).toCharArray();
+      char[] dst = new char[expected.length() + 5];
+      int written = convertor.convert(chars, start + 2, end - start, dst, 3);
+      Assert.assertEquals(expected.length(), written);
+      Assert.assertEquals(expected, new String(dst, 3, written));
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.github.rolandhe.chinese.convertor.trie;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 镜像与文本字典构建的双数组字典树完全相同
+ */
+public class TrieImageTest {
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    DoubleArrayTrie expected = DoubleArrayTrie.build(TrieHelper.build("dict/trad_to_simp_phrases.txt",
+            "dict/trad_to_simp_characters.txt"));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(new byte[]{1, 2, 3});
+    TrieImage.write(expected, out);
+    ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+    buffer.position(3);
+    assertSame(expected, TrieImage.read(buffer));
+    Assert.assertEquals(buffer.limit(), buffer.position());
+  }
+
+  /**
+   * 构建时打包的镜像与当前的文本字典一致
+   */
+  @Test
+  public void testPackagedImage() throws IOException {
+    assertSame(DoubleArrayTrie.build(TrieHelper.build("dict/simp_to_trad_phrases.txt",
+            "dict/simp_to_trad_characters.txt")), readResource("dict/simp_to_trad.dat"));
+    assertSame(DoubleArrayTrie.build(TrieHelper.build("dict/trad_to_simp_phrases.txt",
+            "dict/trad_to_simp_characters.txt")), readResource("dict/trad_to_simp.dat"));
+  }
+
+  @Test
+  public void testLoadOrBuild() {
+    DoubleArrayTrie expected = DoubleArrayTrie.build(TrieHelper.build("dict/trad_to_simp_phrases.txt",
+            "dict/trad_to_simp_characters.txt"));
+    assertSame(expected, TrieImage.loadOrBuild("dict/trad_to_simp.dat", "dict/trad_to_simp_phrases.txt",
+            "dict/trad_to_simp_characters.txt"));
+    // 镜像不存在时从文本构建
+    assertSame(expected, TrieImage.loadOrBuild("dict/missing.dat", "dict/trad_to_simp_phrases.txt",
+            "dict/trad_to_simp_characters.txt"));
+  }
+
+  @Test
+  public void testVersionMismatch() throws IOException {
+    DoubleArrayTrie trie = DoubleArrayTrie.build(TrieHelper.build("dict/trad_to_simp_characters.txt"));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TrieImage.write(trie, out);
+    ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+    buffer.putInt(4, TrieImage.VERSION + 1);
+    try {
+      TrieImage.read(buffer);
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    Assert.assertEquals(0, buffer.position());
+  }
+
+  private static DoubleArrayTrie readResource(String name) throws IOException {
+    try (InputStream in = TrieImageTest.class.getClassLoader().getResourceAsStream(name)) {
+      Assert.assertNotNull(name, in);
+      return TrieImage.read(ByteBuffer.wrap(in.readAllBytes()));
+    }
+  }
+
+  private static void assertSame(DoubleArrayTrie expected, DoubleArrayTrie actual) {
+    Assert.assertArrayEquals(expected.bmpCodes, actual.bmpCodes);
+    Assert.assertArrayEquals(expected.supplementaryPoints, actual.supplementaryPoints);
+    Assert.assertArrayEquals(expected.supplementaryCodes, actual.supplementaryCodes);
+    Assert.assertArrayEquals(expected.base, actual.base);
+    Assert.assertArrayEquals(expected.check, actual.check);
+    Assert.assertArrayEquals(expected.value, actual.value);
+    Assert.assertArrayEquals(expected.pool, actual.pool);
+  }
+}
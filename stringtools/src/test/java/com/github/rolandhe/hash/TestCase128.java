@@ -54,4 +54,22 @@ public class TestCase128 {
 
   }
 
+  @Test
+  public void testReuseOut(){
+    String s="我们将通过生成一个大的文件的方式来检验各种方法的执行效率因为这种方式在结束的时候需要执行文件";
+    byte[] bytes = s.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+
+    CityHash cityHash = new CityHash();
+    Number128 out = new Number128(0L, 0L);
+    cityHash.hash128(bytes, 0, bytes.length, out);
+    Assert.assertTrue(0x73b63e8cd44766c5L == out.getLowValue());
+    Assert.assertTrue(0x9ed8d2c68d45b293L == out.getHiValue());
+
+    Number128 seed = new Number128(1L, 2L);
+    Number128 expected = cityHash.hash128WithSeed(s, seed);
+    cityHash.hash128WithSeed(bytes, 0, bytes.length, 1L, 2L, out);
+    Assert.assertEquals(expected.getLowValue(), out.getLowValue());
+    Assert.assertEquals(expected.getHiValue(), out.getHiValue());
+  }
+
 }
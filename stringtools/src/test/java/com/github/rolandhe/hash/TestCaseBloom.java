@@ -0,0 +1,101 @@
+package com.github.rolandhe.hash;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 布隆过滤器：没有漏判，误判率接近设定值，保存、映射后结果不变，并发插入不丢失
+ */
+public class TestCaseBloom {
+
+  @Test
+  public void testFpp(){
+    BloomFilter filter = BloomFilter.create(100000, 0.01);
+    for (int i = 0; i < 100000; i++) {
+      filter.put("key-" + i);
+    }
+    for (int i = 0; i < 100000; i++) {
+      Assert.assertTrue(filter.mightContain("key-" + i));
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < 100000; i++) {
+      if (filter.mightContain("absent-" + i)) {
+        falsePositives++;
+      }
+    }
+    Assert.assertTrue("false positives " + falsePositives, falsePositives < 1500);
+    Assert.assertEquals(0.01, filter.expectedFpp(), 0.005);
+  }
+
+  @Test
+  public void testSaveAndOpen() throws IOException {
+    // 1K一段，覆盖跨段的情况
+    BloomFilter filter = BloomFilter.create(64 * 1000, 5, 10);
+    for (int i = 0; i < 5000; i++) {
+      filter.put(("key-" + i).getBytes(), 0, ("key-" + i).length());
+    }
+    Path saved = Files.createTempFile("bloom", ".bin");
+    Path created = saved.resolveSibling(saved.getFileName() + ".mapped");
+    try {
+      filter.writeTo(saved);
+      BloomFilter opened = BloomFilter.open(saved, 10);
+      Assert.assertEquals(filter.bitSize(), opened.bitSize());
+      Assert.assertEquals(filter.numHashes(), opened.numHashes());
+      Assert.assertEquals(filter.bitCount(), opened.bitCount());
+      for (int i = 0; i < 10000; i++) {
+        Assert.assertEquals(filter.mightContain("key-" + i), opened.mightContain("key-" + i));
+      }
+
+      BloomFilter mapped = BloomFilter.create(created, 64 * 1000, 5, 10);
+      for (int i = 0; i < 5000; i++) {
+        mapped.put(("key-" + i).getBytes(), 0, ("key-" + i).length());
+      }
+      mapped.flush();
+      Assert.assertEquals(Files.size(saved), Files.size(created));
+      Assert.assertArrayEquals(Files.readAllBytes(saved), Files.readAllBytes(created));
+
+      Files.write(saved, new byte[]{1, 2, 3});
+      try {
+        BloomFilter.open(saved);
+        Assert.fail();
+      } catch (IOException e) {
+        // expected
+      }
+    } finally {
+      Files.deleteIfExists(saved);
+      Files.deleteIfExists(created);
+    }
+  }
+
+  @Test
+  public void testConcurrentPut() throws InterruptedException {
+    final BloomFilter filter = BloomFilter.create(64 * 64, 3, 10);
+    final BloomFilter expected = BloomFilter.create(64 * 64, 3, 10);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      final int base = t * 300;
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < 300; i++) {
+          filter.put("key-" + (base + i));
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (int i = 0; i < 1200; i++) {
+      expected.put("key-" + i);
+      Assert.assertTrue(filter.mightContain("key-" + i));
+    }
+    Assert.assertEquals(expected.bitCount(), filter.bitCount());
+  }
+}
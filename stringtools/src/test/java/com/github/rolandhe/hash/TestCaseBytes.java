@@ -0,0 +1,78 @@
+package com.github.rolandhe.hash;
+
+import com.github.rolandhe.hash.cityhash.CityHash;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * byte[]、ByteBuffer与String入口的hash结果必须完全一致
+ */
+public class TestCaseBytes {
+  private static final String TEXT = "我们将通过生成一个大的文件的方式来检验各种方法的执行效率因为这种方式在结束的时候需要执行文件"
+          + "abcdefghijklmnopqrstuvwxyz0123456789";
+
+  @Test
+  public void testAllLength(){
+    CityHash cityHash = new CityHash();
+    Number128 seed = new Number128(0x1234567L, 0x89abcdefL);
+    for (int i = 0; i <= TEXT.length(); i++) {
+      String s = TEXT.substring(0, i);
+      byte[] raw = s.getBytes(StandardCharsets.UTF_8);
+
+      // 前后各加3个字节，验证offset
+      byte[] padded = new byte[raw.length + 6];
+      System.arraycopy(raw, 0, padded, 3, raw.length);
+      ByteBuffer heap = ByteBuffer.wrap(padded, 3, raw.length);
+      ByteBuffer direct = ByteBuffer.allocateDirect(padded.length);
+      direct.put(padded).position(3).limit(3 + raw.length);
+      ByteBuffer slice = heap.slice();
+      ByteBuffer readOnly = heap.asReadOnlyBuffer();
+
+      int h32 = cityHash.hash32(s);
+      Assert.assertEquals(h32, cityHash.hash32(padded, 3, raw.length));
+      Assert.assertEquals(h32, cityHash.hash32(heap));
+      Assert.assertEquals(h32, cityHash.hash32(direct));
+      Assert.assertEquals(h32, cityHash.hash32(slice));
+      Assert.assertEquals(h32, cityHash.hash32(readOnly));
+
+      long h64 = cityHash.hash64(s);
+      Assert.assertEquals(h64, cityHash.hash64(padded, 3, raw.length));
+      Assert.assertEquals(h64, cityHash.hash64(heap));
+      Assert.assertEquals(h64, cityHash.hash64(direct));
+      Assert.assertEquals(h64, cityHash.hash64(slice));
+      Assert.assertEquals(h64, cityHash.hash64(readOnly));
+
+      long seeded = cityHash.hash64WithSeed(s, 99L);
+      Assert.assertEquals(seeded, cityHash.hash64WithSeed(padded, 3, raw.length, 99L));
+      Assert.assertEquals(seeded, cityHash.hash64WithSeed(heap, 99L));
+      Assert.assertEquals(seeded, cityHash.hash64WithSeed(direct, 99L));
+
+      assert128(cityHash.hash128(s), cityHash.hash128(padded, 3, raw.length));
+      assert128(cityHash.hash128(s), cityHash.hash128(heap));
+      assert128(cityHash.hash128(s), cityHash.hash128(direct));
+      assert128(cityHash.hash128(s), cityHash.hash128(readOnly));
+
+      assert128(cityHash.hash128WithSeed(s, seed), cityHash.hash128WithSeed(padded, 3, raw.length, seed));
+      assert128(cityHash.hash128WithSeed(s, seed), cityHash.hash128WithSeed(heap, seed));
+      assert128(cityHash.hash128WithSeed(s, seed), cityHash.hash128WithSeed(direct, seed));
+
+      // 不改变position
+      Assert.assertEquals(3, direct.position());
+      Assert.assertEquals(3, heap.position());
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testOutOfBounds(){
+    new CityHash().hash64(new byte[8], 4, 5);
+  }
+
+  private static void assert128(Number128 expected, Number128 actual){
+    Assert.assertEquals(expected.getLowValue(), actual.getLowValue());
+    Assert.assertEquals(expected.getHiValue(), actual.getHiValue());
+  }
+}
@@ -0,0 +1,43 @@
+package com.github.rolandhe.hash;
+
+import com.github.rolandhe.hash.cityhash.CityHash;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.CharBuffer;
+
+/**
+ * CharSequence入口的hash结果必须与String入口一致
+ */
+public class TestCaseCharSequence {
+
+  @Test
+  public void testCharSequence(){
+    CityHash cityHash = new CityHash();
+    StringBuilder longText = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      longText.append((char) ('a' + i % 26)).append(i % 7 == 0 ? "中" : "");
+    }
+    String[] texts = {"", "a", "order-10086", "café crème", "中国人民共和国站起来了鼓掌",
+            "emoji😀mixed文字", "bad\uD800surrogate", "\uDC00lead", "tail\uD83D", longText.toString()};
+    for (String s : texts) {
+      StringBuilder sb = new StringBuilder(s);
+      CharBuffer cb = CharBuffer.wrap(s);
+      Assert.assertEquals(s, cityHash.hash32(s), cityHash.hash32(sb));
+      Assert.assertEquals(s, cityHash.hash64(s), cityHash.hash64(sb));
+      Assert.assertEquals(s, cityHash.hash64(s), cityHash.hash64(cb));
+      Assert.assertEquals(s, cityHash.hash64WithSeed(s, 3L), cityHash.hash64WithSeed(sb, 3L));
+      Assert.assertEquals(s, cityHash.hash64WithSeeds(s, 3L, 4L), cityHash.hash64WithSeeds(cb, 3L, 4L));
+
+      Number128 expected = cityHash.hash128(s);
+      Number128 out = new Number128(0L, 0L);
+      cityHash.hash128(sb, out);
+      Assert.assertEquals(s, expected.getLowValue(), out.getLowValue());
+      Assert.assertEquals(s, expected.getHiValue(), out.getHiValue());
+      cityHash.hash128((CharSequence) s, out);
+      Assert.assertEquals(s, expected.getLowValue(), out.getLowValue());
+      Assert.assertEquals(s, expected.getHiValue(), out.getHiValue());
+    }
+  }
+}
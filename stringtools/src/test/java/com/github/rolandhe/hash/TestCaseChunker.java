@@ -0,0 +1,100 @@
+package com.github.rolandhe.hash;
+
+import com.github.rolandhe.hash.cityhash.CityHash;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 基于内容的分块：块长在范围内，数组、buffer、映射文件切出的块相同，插入少量内容后大部分块不变
+ */
+public class TestCaseChunker {
+
+  @Test
+  public void testChunks() throws IOException {
+    byte[] data = new byte[1 << 20];
+    new Random(11).nextBytes(data);
+    ContentChunker chunker = new ContentChunker(512, 2048, 8192, 10000);
+    List<long[]> chunks = collect(chunker, data);
+    long total = 0;
+    CityHash cityHash = new CityHash();
+    for (int i = 0; i < chunks.size(); i++) {
+      long[] chunk = chunks.get(i);
+      Assert.assertEquals(total, chunk[0]);
+      Assert.assertTrue(chunk[1] <= 8192);
+      Assert.assertTrue(chunk[1] >= 512 || i == chunks.size() - 1);
+      Number128 hash = cityHash.hash128(data, (int) chunk[0], (int) chunk[1]);
+      Assert.assertEquals(hash.getLowValue(), chunk[2]);
+      Assert.assertEquals(hash.getHiValue(), chunk[3]);
+      total += chunk[1];
+    }
+    Assert.assertEquals(data.length, total);
+    double average = (double) data.length / chunks.size();
+    Assert.assertTrue("average " + average, average > 1500 && average < 3500);
+
+    List<long[]> fromBuffer = new ArrayList<>();
+    ByteBuffer direct = ByteBuffer.allocateDirect(data.length + 3);
+    direct.position(3);
+    direct.put(data).position(3);
+    chunker.chunk(direct, (offset, chunk, low, hi) -> fromBuffer.add(new long[]{offset, chunk.remaining(), low, hi}));
+    Assert.assertEquals(3, direct.position());
+    assertSame(chunks, fromBuffer);
+
+    Path file = Files.createTempFile("chunker", ".bin");
+    try {
+      Files.write(file, data);
+      List<long[]> fromFile = new ArrayList<>();
+      chunker.chunk(file, (offset, chunk, low, hi) -> fromFile.add(new long[]{offset, chunk.remaining(), low, hi}));
+      assertSame(chunks, fromFile);
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  public void testInsertKeepsChunks(){
+    byte[] data = new byte[1 << 20];
+    new Random(13).nextBytes(data);
+    byte[] edited = new byte[data.length + 100];
+    System.arraycopy(data, 0, edited, 0, 500000);
+    System.arraycopy(data, 500000, edited, 500100, data.length - 500000);
+    ContentChunker chunker = new ContentChunker();
+    Set<Long> before = new HashSet<>();
+    for (long[] chunk : collect(chunker, data)) {
+      before.add(chunk[2]);
+    }
+    List<long[]> after = collect(chunker, edited);
+    int shared = 0;
+    for (long[] chunk : after) {
+      if (before.contains(chunk[2])) {
+        shared++;
+      }
+    }
+    Assert.assertTrue("shared " + shared + " of " + after.size(), shared >= after.size() - 3);
+  }
+
+  private static List<long[]> collect(ContentChunker chunker, byte[] data) {
+    List<long[]> chunks = new ArrayList<>();
+    chunker.chunk(data, 0, data.length, (offset, chunk, low, hi) -> {
+      Assert.assertTrue(chunk.isReadOnly());
+      chunks.add(new long[]{offset, chunk.remaining(), low, hi});
+    });
+    return chunks;
+  }
+
+  private static void assertSame(List<long[]> expected, List<long[]> actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Assert.assertArrayEquals(expected.get(i), actual.get(i));
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package com.github.rolandhe.hash;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Count-Min sketch：估计值不小于真实值，误差在范围内，并发记录不丢失，top-K找出高频key
+ */
+public class TestCaseCountMin {
+
+  @Test
+  public void testEstimate(){
+    CountMinSketch sketch = CountMinSketch.withError(0.001, 0.01);
+    Assert.assertEquals(4096, sketch.width());
+    Assert.assertEquals(5, sketch.depth());
+    long total = 0;
+    for (int i = 0; i < 20000; i++) {
+      int count = i % 10 + 1;
+      sketch.add("key-" + i, count);
+      total += count;
+    }
+    Assert.assertEquals(total, sketch.size());
+    int overLimit = 0;
+    for (int i = 0; i < 20000; i++) {
+      long estimate = sketch.estimate("key-" + i);
+      Assert.assertTrue(estimate >= i % 10 + 1);
+      if (estimate - (i % 10 + 1) > 0.001 * total) {
+        overLimit++;
+      }
+    }
+    Assert.assertTrue("over limit " + overLimit, overLimit < 200);
+
+    byte[] bytes = "key-7".getBytes();
+    Assert.assertEquals(sketch.estimate("key-7"), sketch.estimate(bytes, 0, bytes.length));
+    long before = sketch.estimate("key-7");
+    Assert.assertEquals(before + 3, sketch.add(bytes, 0, bytes.length, 3));
+
+    CountMinSketch other = new CountMinSketch(4096, 5);
+    other.add("key-7", 100);
+    sketch.merge(other);
+    Assert.assertTrue(sketch.estimate("key-7") >= before + 103);
+  }
+
+  @Test
+  public void testConcurrentAdd() throws InterruptedException {
+    final ConcurrentCountMinSketch sketch = new ConcurrentCountMinSketch(1024, 4, 2);
+    final HeavyHitters hitters = new HeavyHitters(3, new ConcurrentCountMinSketch(1024, 4, 3));
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < 10000; i++) {
+          sketch.add("key-" + (i % 100));
+          hitters.add(i % 10 < 3 ? "hot-" + (i % 10) : "cold-" + i);
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    Assert.assertEquals(40000, sketch.size());
+    for (int i = 0; i < 100; i++) {
+      Assert.assertTrue(sketch.estimate("key-" + i) >= 400);
+    }
+    Assert.assertEquals(40000, sketch.snapshot().size());
+
+    List<HeavyHitters.Item> top = hitters.top();
+    Assert.assertEquals(3, top.size());
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals("hot-" + i, top.get(i).getKey());
+      Assert.assertTrue(top.get(i).getCount() >= 4000);
+    }
+  }
+}
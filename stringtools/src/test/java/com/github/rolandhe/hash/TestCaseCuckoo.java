@@ -0,0 +1,91 @@
+package com.github.rolandhe.hash;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * cuckoo过滤器：装载率95%时没有漏判、误判率在上界以内，删除后不再命中，插入时并发查找不漏判
+ */
+public class TestCaseCuckoo {
+
+  @Test
+  public void testPutAndRemove(){
+    CuckooFilter filter = CuckooFilter.create(100000);
+    Assert.assertEquals(131072, filter.capacity());
+    int inserted = (int) (filter.capacity() * 0.95);
+    for (int i = 0; i < inserted; i++) {
+      Assert.assertTrue(filter.put("key-" + i));
+    }
+    Assert.assertEquals(inserted, filter.size());
+    for (int i = 0; i < inserted; i++) {
+      Assert.assertTrue(filter.mightContain("key-" + i));
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < 200000; i++) {
+      if (filter.mightContain("absent-" + i)) {
+        falsePositives++;
+      }
+    }
+    Assert.assertTrue("false positives " + falsePositives, falsePositives < 200000 * filter.expectedFpp() * 1.3);
+
+    for (int i = 0; i < inserted; i += 2) {
+      Assert.assertTrue(filter.remove("key-" + i));
+    }
+    Assert.assertEquals(inserted / 2, filter.size());
+    int remaining = 0;
+    for (int i = 0; i < inserted; i++) {
+      if (i % 2 == 1) {
+        Assert.assertTrue(filter.mightContain("key-" + i));
+      } else if (filter.mightContain("key-" + i)) {
+        remaining++;
+      }
+    }
+    Assert.assertTrue("remaining " + remaining, remaining < 100);
+    Assert.assertFalse(filter.remove("never-inserted"));
+  }
+
+  @Test
+  public void testFull(){
+    CuckooFilter filter = new CuckooFilter(16);
+    int inserted = 0;
+    while (filter.put("key-" + inserted)) {
+      inserted++;
+    }
+    Assert.assertEquals(inserted, filter.size());
+    Assert.assertTrue("inserted " + inserted, inserted > 50);
+    for (int i = 0; i < inserted; i++) {
+      Assert.assertTrue(filter.mightContain("key-" + i));
+    }
+  }
+
+  @Test
+  public void testConcurrentRead() throws InterruptedException {
+    final CuckooFilter filter = new CuckooFilter(1 << 12);
+    final int total = (int) (filter.capacity() * 0.95);
+    final AtomicInteger published = new AtomicInteger();
+    final AtomicInteger misses = new AtomicInteger();
+    Thread writer = new Thread(() -> {
+      for (int i = 0; i < total; i++) {
+        filter.put("key-" + i);
+        published.set(i + 1);
+      }
+    });
+    Thread reader = new Thread(() -> {
+      while (published.get() < total) {
+        int upper = published.get();
+        for (int i = Math.max(0, upper - 2000); i < upper; i++) {
+          if (!filter.mightContain("key-" + i)) {
+            misses.incrementAndGet();
+          }
+        }
+      }
+    });
+    writer.start();
+    reader.start();
+    writer.join();
+    reader.join();
+    Assert.assertEquals(0, misses.get());
+  }
+}
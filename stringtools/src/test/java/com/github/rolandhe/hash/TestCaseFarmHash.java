@@ -0,0 +1,103 @@
+package com.github.rolandhe.hash;
+
+import com.github.rolandhe.hash.cityhash.CityHash;
+import com.github.rolandhe.hash.farmhash.FarmHash;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * farmhash的golden vector，输入为data[i] = (byte) (i * 31 + 7)的前len个字节。
+ * farmhashna、farmhashuo及带种子的结果与c++版本(Fingerprint64、farmhashuo::Hash64、farmhashna::Hash64WithSeed)一致
+ */
+public class TestCaseFarmHash {
+  private static final long SEED = 0x1234567890abcdefL;
+
+  // len, farmhashna, farmhashuo, farmhashna with SEED, farmhashmk hash32
+  private static final long[][] GOLDEN = {
+      {0, 0x9ae16a3b2f90404fL, 0x9ae16a3b2f90404fL, 0x15615811497ca75fL, 0xdc56d17a},
+      {1, 0x57821efdee1b7472L, 0x57821efdee1b7472L, 0x9390fe72873a8a6dL, 0xca8f538a},
+      {3, 0x5f043801775be181L, 0x5f043801775be181L, 0xb69e427daef1121eL, 0x02fd104c},
+      {4, 0xdcf15d9b38b260fcL, 0xdcf15d9b38b260fcL, 0x562c02d06d9fa4e0L, 0xfd8f8a0a},
+      {7, 0x545ac134b57925ffL, 0x545ac134b57925ffL, 0xdde4e2b0ba025092L, 0xd21064da},
+      {8, 0xd14693440d28f69aL, 0xd14693440d28f69aL, 0x2726688a5dec78d5L, 0x655a8263},
+      {12, 0xbdcdedef38b4a04eL, 0xbdcdedef38b4a04eL, 0xce8ed89d7c992b12L, 0xe7ead7a7},
+      {13, 0x20cb92a4c3d7d06aL, 0x20cb92a4c3d7d06aL, 0x3a3af984d5879b94L, 0xde6cfa60},
+      {16, 0xd9b28ec31be83978L, 0xd9b28ec31be83978L, 0xf4b2e3121d065338L, 0x26f7da01},
+      {17, 0xffb7cd799a150d69L, 0xffb7cd799a150d69L, 0x81899fc2dddfd171L, 0xca4a1f28},
+      {24, 0x544ca270755e17e9L, 0x544ca270755e17e9L, 0xb514d3f0019af33bL, 0x556429e7},
+      {25, 0x6b1b5af22465ee4cL, 0x6b1b5af22465ee4cL, 0x832e50174e1704acL, 0x4fda6fe1},
+      {32, 0x5b0213e62a3ca399L, 0x5b0213e62a3ca399L, 0x770922ae7b24f707L, 0xfc8b9c53},
+      {33, 0xd73bbb576c6c9808L, 0xd73bbb576c6c9808L, 0xf99037b6b66d91dfL, 0x83f4ff34},
+      {64, 0x56317ec658bfa4f9L, 0x56317ec658bfa4f9L, 0x8b6963d30830c914L, 0xbdaa93c1},
+      {65, 0x5a5b9a92eb3061d6L, 0x8c565e4f143f1024L, 0xfbeeb1229488baeeL, 0xf276ab5a},
+      {100, 0x7f2537959ee60afdL, 0xe85be81b196cea04L, 0x04053b602fdc7440L, 0x05912381},
+      {128, 0x62d2c1879bd73de5L, 0x4995c5fe4b3a2906L, 0xda1c42efcfaef58aL, 0xb222c2b9},
+      {129, 0xd8e52f1caf21aae2L, 0xe0361722ae4bb39eL, 0x4f05e73d1fea2fd3L, 0x5b57edc4},
+      {200, 0x8f2dac6e1bb7686dL, 0xf42609f8b991f2caL, 0xe84486ed9fa70199L, 0xb5661aac},
+      {1000, 0x887fc552cf10ef81L, 0xb5b8a1dbf3f6f358L, 0xa099daa5928920d8L, 0x6637e655},
+  };
+
+  @Test
+  public void testGolden(){
+    byte[] data = new byte[1000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i * 31 + 7);
+    }
+    FarmHash na = new FarmHash();
+    FarmHash uo = new FarmHash(FarmHash.Variant.UO);
+    for (long[] golden : GOLDEN) {
+      int len = (int) golden[0];
+      String message = "len=" + len;
+      Assert.assertEquals(message, golden[1], na.hash64(data, 0, len));
+      Assert.assertEquals(message, golden[2], uo.hash64(data, 0, len));
+      Assert.assertEquals(message, golden[3], na.hash64WithSeed(data, 0, len, SEED));
+      Assert.assertEquals(message, (int) golden[4], na.hash32(data, 0, len));
+      Assert.assertEquals(message, (int) golden[4], uo.hash32(data, 0, len));
+    }
+  }
+
+  @Test
+  public void testAllInput(){
+    Random random = new Random(19);
+    CityHash cityHash = new CityHash();
+    FarmHash[] farmHashes = {new FarmHash(), new FarmHash(FarmHash.Variant.UO)};
+    Number128 seed = new Number128(3L, 4L);
+    for (FarmHash farmHash : farmHashes) {
+      for (int len = 0; len < 300; len++) {
+        byte[] padded = new byte[len + 6];
+        random.nextBytes(padded);
+        ByteBuffer heap = ByteBuffer.wrap(padded, 3, len);
+        ByteBuffer direct = ByteBuffer.allocateDirect(padded.length);
+        direct.put(padded).position(3).limit(3 + len);
+
+        Assert.assertEquals(farmHash.hash32(padded, 3, len), farmHash.hash32(heap));
+        Assert.assertEquals(farmHash.hash32(padded, 3, len), farmHash.hash32(direct));
+        Assert.assertEquals(farmHash.hash64(padded, 3, len), farmHash.hash64(heap));
+        Assert.assertEquals(farmHash.hash64(padded, 3, len), farmHash.hash64(direct));
+        Assert.assertEquals(farmHash.hash64WithSeed(padded, 3, len, 5L), farmHash.hash64WithSeed(direct, 5L));
+        Assert.assertEquals(farmHash.hash64WithSeeds(padded, 3, len, 5L, 6L),
+                farmHash.hash64WithSeeds(direct, 5L, 6L));
+
+        // farmhashcc的128位与cityhash v1.1相同
+        Number128 expected = cityHash.hash128WithSeed(padded, 3, len, seed);
+        Number128 actual = farmHash.hash128WithSeed(direct, seed);
+        Assert.assertEquals(expected.getLowValue(), actual.getLowValue());
+        Assert.assertEquals(expected.getHiValue(), actual.getHiValue());
+      }
+
+      long v0 = random.nextLong();
+      long v1 = random.nextLong();
+      ByteBuffer buffer = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+      buffer.putLong(0, v0).putLong(8, v1).putLong(16, v0);
+      Assert.assertEquals(farmHash.hash32(buffer.array(), 0, 4), farmHash.hash32((int) v0));
+      Assert.assertEquals(farmHash.hash64(buffer.array(), 0, 8), farmHash.hash64(v0));
+      Assert.assertEquals(farmHash.hash64(buffer.array(), 0, 16), farmHash.hash64(v0, v1));
+      Assert.assertEquals(farmHash.hash64(buffer.array(), 0, 24), farmHash.hash64(new long[]{v0, v1, v0}));
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package com.github.rolandhe.hash;
+
+import com.github.rolandhe.hash.cityhash.CityHash;
+import com.github.rolandhe.hash.cityhash.CityHashFile;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * 文件hash与内存中hash的结果必须一致，使用很小的窗口覆盖跨窗口的情况
+ */
+public class TestCaseFile {
+
+  @Test
+  public void testWindows() throws IOException {
+    CityHash cityHash = new CityHash();
+    int[] sizes = {0, 1, 15, 16, 17, 64, 65, 100, 127, 128, 129, 143, 144, 145, 200, 255, 256, 257, 383, 384,
+            1000, 4099, 10000};
+    Random random = new Random(7);
+    Path file = Files.createTempFile("cityhash", ".bin");
+    try {
+      for (int size : sizes) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        Files.write(file, bytes);
+        Number128 seed = new Number128(size, ~size);
+        Number128 expected128 = cityHash.hash128(bytes, 0, size);
+        Number128 expectedSeed = cityHash.hash128WithSeed(bytes, 0, size, seed);
+
+        for (int windowSize : new int[]{128, 256, 1024, CityHashFile.DEFAULT_WINDOW_SIZE}) {
+          CityHashFile fileHash = new CityHashFile(windowSize);
+          Assert.assertEquals("size " + size, cityHash.hash64(bytes, 0, size), fileHash.hash64(file));
+          Number128 actual = fileHash.hash128(file);
+          Assert.assertEquals("size " + size, expected128.getLowValue(), actual.getLowValue());
+          Assert.assertEquals("size " + size, expected128.getHiValue(), actual.getHiValue());
+          actual = fileHash.hash128WithSeed(file, seed);
+          Assert.assertEquals("size " + size, expectedSeed.getLowValue(), actual.getLowValue());
+          Assert.assertEquals("size " + size, expectedSeed.getHiValue(), actual.getHiValue());
+        }
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadWindow(){
+    new CityHashFile(100);
+  }
+}
@@ -0,0 +1,156 @@
+package com.github.rolandhe.hash;
+
+import com.github.rolandhe.hash.cityhash.CityHash;
+import com.github.rolandhe.hash.cityhash.Hasher;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 增量hash与拼接后hash的结果必须一致
+ */
+public class TestCaseHasher {
+
+  @Test
+  public void testCompositeKey(){
+    CityHash cityHash = new CityHash();
+    Hasher hasher = new Hasher(4);
+    for (int round = 0; round < 3; round++) {
+      for (int i = 0; i < 200; i++) {
+        String tenant = "租户" + i;
+        String table = "order_item_" + (i * 31);
+        long id = 0x0102030405060708L * i;
+        int version = i * 7;
+
+        ByteBuffer expected = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+        expected.put(tenant.getBytes(StandardCharsets.UTF_8));
+        expected.put(table.getBytes(StandardCharsets.UTF_8));
+        expected.putLong(id);
+        expected.putInt(version);
+        expected.flip();
+
+        hasher.reset().putString(tenant).putString(table).putLong(id).putInt(version);
+        Assert.assertEquals(expected.remaining(), hasher.size());
+        Assert.assertEquals(cityHash.hash64(expected), hasher.hash64());
+        Assert.assertEquals(cityHash.hash32(expected), hasher.hash32());
+        Assert.assertEquals(cityHash.hash64WithSeed(expected, 5L), hasher.hash64WithSeed(5L));
+        Number128 h = cityHash.hash128(expected);
+        Number128 out = new Number128(0L, 0L);
+        hasher.hash128(out);
+        Assert.assertEquals(h.getLowValue(), out.getLowValue());
+        Assert.assertEquals(h.getHiValue(), out.getHiValue());
+      }
+    }
+  }
+
+  @Test
+  public void testString(){
+    String s = "我们将通过生成一个大的文件😀的方式来检验各种方法的执行效率\uD800abc";
+    Hasher hasher = new Hasher();
+    hasher.putString(s.substring(0, 10)).putString(new StringBuilder(s.substring(10)));
+    Assert.assertEquals(new CityHash().hash64(s), hasher.hash64());
+
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+    direct.put(bytes).flip();
+    hasher.reset().putBytes(bytes, 0, 7).putBytes(direct.position(7));
+    Assert.assertEquals(new CityHash().hash64(s), hasher.hash64());
+    Assert.assertEquals(7, direct.position());
+    hasher.reset().putBytes(ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+    Assert.assertEquals(new CityHash().hash64(s), hasher.hash64());
+  }
+
+  /**
+   * 长字符串分段编码，surrogate对落在分段边界上时结果不变
+   */
+  @Test
+  public void testLongString(){
+    CityHash cityHash = new CityHash();
+    for (int shift = 0; shift < 4; shift++) {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < 4093 + shift; i++) {
+        sb.append((char) ('a' + i % 26));
+      }
+      while (sb.length() < 20000) {
+        sb.append("😀中文\uD800x");
+      }
+      String s = sb.toString();
+      Hasher hasher = new Hasher(0);
+      hasher.putString(s);
+      byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      Assert.assertEquals(bytes.length, hasher.size());
+      Assert.assertEquals(cityHash.hash64(bytes, 0, bytes.length), hasher.hash64());
+    }
+  }
+
+  /**
+   * 长度乘3会溢出int的输入，放不下时抛出IllegalStateException
+   */
+  @Test
+  public void testHugeString(){
+    CharSequence huge = new CharSequence() {
+      @Override
+      public int length() {
+        return Integer.MAX_VALUE - 4;
+      }
+
+      @Override
+      public char charAt(int index) {
+        return 'a';
+      }
+
+      @Override
+      public CharSequence subSequence(int start, int end) {
+        throw new UnsupportedOperationException();
+      }
+    };
+    Hasher hasher = new Hasher();
+    try {
+      hasher.putString(huge);
+      Assert.fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    Assert.assertEquals(0, hasher.size());
+    Assert.assertEquals(new CityHash().hash64("abc"), hasher.putString("abc").hash64());
+  }
+
+  /**
+   * 写入到一半失败时丢弃这个字符串已经写入的分段
+   */
+  @Test
+  public void testFailedStringRollsBack(){
+    CharSequence failing = new CharSequence() {
+      @Override
+      public int length() {
+        return 10000;
+      }
+
+      @Override
+      public char charAt(int index) {
+        if (index >= 9000) {
+          throw new IllegalStateException("fail at " + index);
+        }
+        return '中';
+      }
+
+      @Override
+      public CharSequence subSequence(int start, int end) {
+        throw new UnsupportedOperationException();
+      }
+    };
+    Hasher hasher = new Hasher().putString("abc");
+    try {
+      hasher.putString(failing);
+      Assert.fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    Assert.assertEquals(3, hasher.size());
+    Assert.assertEquals(new CityHash().hash64("abc"), hasher.hash64());
+  }
+}
@@ -0,0 +1,113 @@
+package com.github.rolandhe.hash;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * HyperLogLog：各个基数范围内的误差，稀疏、稠密两种表示的合并及序列化
+ */
+public class TestCaseHyperLogLog {
+
+  @Test
+  public void testAccuracy(){
+    for (int precision : new int[]{10, 14}) {
+      HyperLogLog hll = new HyperLogLog(precision);
+      double error = 1.04 / Math.sqrt(1 << precision);
+      int[] checkpoints = {1, 10, 100, 1000, 10000, 100000, 1000000};
+      int next = 0;
+      for (int i = 1; i <= 1000000; i++) {
+        hll.add("user-" + i);
+        // 重复的key不影响结果
+        hll.add("user-" + (i / 2 + 1));
+        if (i == checkpoints[next]) {
+          long estimate = hll.cardinality();
+          Assert.assertTrue("p=" + precision + " n=" + i + " estimate=" + estimate,
+                  Math.abs(estimate - i) <= Math.max(1, 4 * error * i));
+          next++;
+        }
+      }
+      Assert.assertFalse(hll.isSparse());
+    }
+    Assert.assertEquals(0, new HyperLogLog().cardinality());
+  }
+
+  @Test
+  public void testMergeAndSerialize(){
+    HyperLogLog all = new HyperLogLog(12);
+    HyperLogLog[] parts = new HyperLogLog[4];
+    for (int i = 0; i < parts.length; i++) {
+      parts[i] = new HyperLogLog(12);
+    }
+    for (int i = 0; i < 20000; i++) {
+      all.add(i);
+      // 第0个保持稀疏，其余的转换成稠密
+      int part = i < 100 ? 0 : 1 + i % 3;
+      parts[part].add(i);
+    }
+    Assert.assertTrue(parts[0].isSparse());
+    Assert.assertFalse(parts[1].isSparse());
+
+    HyperLogLog sparseFirst = HyperLogLog.fromByteArray(parts[0].toByteArray());
+    HyperLogLog denseFirst = HyperLogLog.fromByteArray(parts[3].toByteArray());
+    for (HyperLogLog part : parts) {
+      sparseFirst.merge(HyperLogLog.fromByteArray(part.toByteArray()));
+      denseFirst.merge(part);
+    }
+    Assert.assertArrayEquals(all.toByteArray(), sparseFirst.toByteArray());
+    Assert.assertArrayEquals(all.toByteArray(), denseFirst.toByteArray());
+    Assert.assertEquals(all.cardinality(), sparseFirst.cardinality());
+
+    // 稀疏表示的序列化与合并
+    HyperLogLog small = new HyperLogLog(12);
+    HyperLogLog smallOther = new HyperLogLog(12);
+    for (int i = 0; i < 300; i++) {
+      small.add("k" + i);
+      smallOther.add("k" + (i + 150));
+    }
+    small.merge(smallOther);
+    Assert.assertTrue(small.isSparse());
+    HyperLogLog restored = HyperLogLog.fromByteArray(small.toByteArray());
+    Assert.assertEquals(small.cardinality(), restored.cardinality());
+    Assert.assertEquals(450, restored.cardinality(), 2);
+    Assert.assertTrue(small.toByteArray().length < 3 + (4096 * 6 + 7) / 8);
+  }
+
+  @Test
+  public void testCorruptedSparse(){
+    // 两个元素：位置0、rho=1，位置1、rho=1（差值64）
+    HyperLogLog hll = HyperLogLog.fromByteArray(new byte[]{1, 12, 0, 2, 1, 64});
+    Assert.assertTrue(hll.isSparse());
+    Assert.assertEquals(2, hll.cardinality());
+
+    byte[][] corrupted = {
+            // 截断
+            {1, 12, 0, 2, 1},
+            {1, 12, 0, 1, (byte) 0x81},
+            // 多余的数据
+            {1, 12, 0, 2, 1, 64, 0},
+            // 位置相同或递减
+            {1, 12, 0, 2, 65, 0},
+            {1, 12, 0, 2, 65, 1},
+            // rho为0、超过上限
+            {1, 12, 0, 1, 64},
+            {1, 12, 0, 1, 41},
+            // 位置超过25位
+            {1, 12, 0, 1, (byte) 0x81, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x08},
+            // 元素个数超过剩余字节、超过32位、varint过长
+            {1, 12, 0, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07, 1},
+            {1, 12, 0, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x1f},
+            {1, 12, 0, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0},
+            {1, 12, 0},
+    };
+    for (byte[] bytes : corrupted) {
+      try {
+        HyperLogLog.fromByteArray(bytes);
+        Assert.fail(Arrays.toString(bytes));
+      } catch (IllegalArgumentException e) {
+        Assert.assertEquals("corrupted hyperloglog data", e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package com.github.rolandhe.hash;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 字符串驻留池：相等的字符串返回同一个对象，容量有上限，统计数据正确，并发驻留得到唯一对象
+ */
+public class TestCaseInterner {
+
+  @Test
+  public void testIntern(){
+    StringInterner interner = new StringInterner(100);
+    Assert.assertEquals(128, interner.stats().getCapacity());
+    String first = new String("华北-产品-" + 1);
+    Assert.assertSame(first, interner.intern(first));
+    String copy = new String("华北-产品-" + 1);
+    Assert.assertSame(first, interner.intern(copy));
+    Assert.assertSame(first, interner.intern(first));
+
+    StringInterner.Stats stats = interner.stats();
+    Assert.assertEquals(3, stats.getLookups());
+    Assert.assertEquals(2, stats.getHits());
+    Assert.assertEquals(StringInterner.retainedSize(copy), stats.getBytesSaved());
+    Assert.assertEquals(1, stats.getEntries());
+    Assert.assertEquals(24 + 24, StringInterner.retainedSize("abc"));
+    Assert.assertEquals(24 + 32, StringInterner.retainedSize("华北-产品-1"));
+
+    for (int i = 0; i < 10000; i++) {
+      interner.intern("key-" + i);
+    }
+    stats = interner.stats();
+    Assert.assertEquals(128, stats.getEntries());
+    Assert.assertEquals(10001 - 128, stats.getEvictions());
+    Assert.assertEquals(new String("key-9999"), interner.intern(new String("key-9999")));
+  }
+
+  @Test
+  public void testConcurrentIntern() throws InterruptedException {
+    final StringInterner interner = new StringInterner(1 << 16);
+    final ConcurrentHashMap<String, String> canonical = new ConcurrentHashMap<>();
+    final AtomicInteger duplicates = new AtomicInteger();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < 20000; i++) {
+          String value = interner.intern(new String("code-" + (i % 1000)));
+          String previous = canonical.putIfAbsent(value, value);
+          if (previous != null && previous != value) {
+            duplicates.incrementAndGet();
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    Assert.assertEquals(0, duplicates.get());
+    StringInterner.Stats stats = interner.stats();
+    Assert.assertEquals(80000, stats.getLookups());
+    Assert.assertEquals(80000 - 1000, stats.getHits());
+    Assert.assertEquals(1000, stats.getEntries());
+    Assert.assertEquals(0, stats.getEvictions());
+  }
+}
@@ -0,0 +1,86 @@
+package com.github.rolandhe.hash;
+
+import com.github.rolandhe.hash.cityhash.CityHash;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * long指纹的map与set：随机增删改查与HashMap结果一致，包括扩容搬迁期间与key为0的情况
+ */
+public class TestCaseLongMap {
+
+  @Test
+  public void testAgainstHashMap(){
+    Random random = new Random(7);
+    Long2LongMap map = new Long2LongMap();
+    Long2ObjectMap<String> objects = new Long2ObjectMap<>();
+    LongSet set = new LongSet();
+    Map<Long, Long> expected = new HashMap<>();
+    // 一半是随机指纹，一半高位集中在4个值上，制造很长的探测链和回绕；key的范围较小，保证有足够多的重复与删除
+    long[] pool = new long[5000];
+    for (int i = 1; i < pool.length; i++) {
+      pool[i] = i % 2 == 0 ? random.nextLong() : (long) random.nextInt(4) << 62 | i;
+    }
+    for (int i = 0; i < 200000; i++) {
+      long key = pool[random.nextInt(pool.length)];
+      int op = random.nextInt(10);
+      if (op < 6) {
+        Long previous = expected.put(key, (long) i);
+        Assert.assertEquals(previous == null ? 0L : previous, map.put(key, i));
+        Assert.assertEquals(previous == null ? null : String.valueOf(previous), objects.put(key, String.valueOf(i)));
+        Assert.assertEquals(previous == null, set.add(key));
+      } else if (op < 8) {
+        Long previous = expected.remove(key);
+        Assert.assertEquals(previous == null ? 0L : previous, map.remove(key));
+        Assert.assertEquals(previous == null ? null : String.valueOf(previous), objects.remove(key));
+        Assert.assertEquals(previous != null, set.remove(key));
+      } else {
+        Long value = expected.get(key);
+        Assert.assertEquals(value != null, map.containsKey(key));
+        Assert.assertEquals(value == null ? -1L : value, map.getOrDefault(key, -1L));
+        Assert.assertEquals(value == null ? null : String.valueOf(value), objects.get(key));
+        Assert.assertEquals(value != null, set.contains(key));
+      }
+      Assert.assertEquals(expected.size(), map.size());
+      Assert.assertEquals(expected.size(), objects.size());
+      Assert.assertEquals(expected.size(), set.size());
+    }
+
+    Map<Long, Long> iterated = new HashMap<>();
+    map.forEach((key, value) -> Assert.assertNull(iterated.put(key, value)));
+    Assert.assertEquals(expected, iterated);
+    Set<Long> keys = new HashSet<>();
+    set.forEach(key -> Assert.assertTrue(keys.add(key)));
+    Assert.assertEquals(expected.keySet(), keys);
+    objects.forEach((key, value) -> Assert.assertEquals(String.valueOf(expected.get(key)), value));
+
+    map.clear();
+    Assert.assertTrue(map.isEmpty());
+    Assert.assertFalse(map.containsKey(0L));
+  }
+
+  @Test
+  public void testGrowWithFingerprints(){
+    CityHash cityHash = new CityHash();
+    Long2LongMap counts = new Long2LongMap();
+    LongSet set = new LongSet(10);
+    for (int round = 0; round < 3; round++) {
+      for (int i = 0; i < 100000; i++) {
+        long fingerprint = cityHash.hash64("word-" + i);
+        counts.addTo(fingerprint, 1);
+        set.add(fingerprint);
+        // 扩容搬迁进行中也要能查到之前的元素
+        Assert.assertEquals(round + 1, counts.get(fingerprint));
+        Assert.assertTrue(set.contains(cityHash.hash64("word-" + (i / 2))));
+      }
+    }
+    Assert.assertEquals(100000, counts.size());
+    Assert.assertEquals(100000, set.size());
+  }
+}
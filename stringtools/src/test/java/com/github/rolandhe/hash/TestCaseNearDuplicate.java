@@ -0,0 +1,102 @@
+package com.github.rolandhe.hash;
+
+import com.github.rolandhe.hash.cityhash.CityHash;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 近似重复检测：shingle不切开代理对，SimHash与MinHash区分相似与不相似的文本，LSH索引找出近似重复
+ */
+public class TestCaseNearDuplicate {
+  private static final String BASE = "北京时间今天上午，国家统计局发布了最新一期的居民消费价格指数，"
+          + "数据显示食品价格同比上涨，其中猪肉价格涨幅明显，蔬菜价格有所回落，𠀀𠀁扩展区汉字也要正确处理。";
+
+  @Test
+  public void testShingles(){
+    String text = "a𠀀b𠀁c";
+    List<Long> hashes = new ArrayList<>();
+    new Shingler(2).forEach(text, hashes::add);
+    CityHash cityHash = new CityHash();
+    String[] expected = {"a𠀀", "𠀀b", "b𠀁", "𠀁c"};
+    Assert.assertEquals(expected.length, hashes.size());
+    for (int i = 0; i < expected.length; i++) {
+      byte[] bytes = expected[i].getBytes(StandardCharsets.UTF_16LE);
+      Assert.assertEquals(cityHash.hash64WithSeed(bytes, 0, bytes.length, Shingler.DEFAULT_SEED),
+              (long) hashes.get(i));
+    }
+    hashes.clear();
+    new Shingler(8).forEach(text, hashes::add);
+    Assert.assertEquals(1, hashes.size());
+    hashes.clear();
+    new Shingler(8).forEach("", hashes::add);
+    Assert.assertEquals(0, hashes.size());
+  }
+
+  @Test
+  public void testSimilarity(){
+    String near = BASE.replace("明显", "较大").replace("今天上午", "今天");
+    String other = "上海证券交易所今日收盘，沪指小幅上扬，成交量较前一交易日放大，科技板块领涨，银行与地产板块表现平淡，两市超过三千只个股上涨。";
+
+    SimHash simHash = new SimHash();
+    long base = simHash.hash(BASE);
+    Assert.assertTrue(SimHash.distance(base, simHash.hash(near)) < 12);
+    Assert.assertTrue(SimHash.distance(base, simHash.hash(other)) > 16);
+    Assert.assertEquals(0, SimHash.distance(base, simHash.hash(BASE)));
+
+    MinHash minHash = new MinHash(256, new Shingler(3));
+    double jaccard = jaccard(BASE, near, 3);
+    Assert.assertEquals(jaccard, MinHash.similarity(minHash.signature(BASE), minHash.signature(near)), 0.1);
+    Assert.assertTrue(MinHash.similarity(minHash.signature(BASE), minHash.signature(other)) < 0.05);
+
+    long[] bands = SimHash.bands(0x0123456789abcdefL, 5);
+    Assert.assertEquals(5, bands.length);
+    long joined = 0;
+    int from = 0;
+    for (int i = 0; i < bands.length; i++) {
+      joined |= bands[i] << from;
+      from = (i + 1) * 64 / bands.length;
+    }
+    Assert.assertEquals(0x0123456789abcdefL, joined);
+  }
+
+  @Test
+  public void testLshIndex(){
+    MinHash minHash = new MinHash(128, new Shingler(3));
+    LshIndex<Integer> minHashIndex = new LshIndex<>(32, 4);
+    SimHash simHash = new SimHash();
+    LshIndex<Integer> simHashIndex = new LshIndex<>(8, 1);
+    for (int i = 0; i < 2000; i++) {
+      String text = "商品编号" + i + "，" + (i * 7919 % 2003) + "号仓库发货，规格" + (i % 37) + "，颜色" + (i % 11);
+      minHashIndex.add(i, minHash.signature(text));
+      simHashIndex.add(i, SimHash.bands(simHash.hash(text), 8));
+    }
+    minHashIndex.add(-1, minHash.signature(BASE));
+    simHashIndex.add(-1, SimHash.bands(simHash.hash(BASE), 8));
+    Assert.assertEquals(2001, minHashIndex.size());
+
+    String near = BASE.replace("明显", "较大");
+    List<Integer> candidates = minHashIndex.candidates(minHash.signature(near));
+    Assert.assertTrue(candidates.contains(-1));
+    Assert.assertTrue("candidates " + candidates.size(), candidates.size() < 20);
+    candidates = simHashIndex.candidates(SimHash.bands(simHash.hash(near), 8));
+    Assert.assertTrue(candidates.contains(-1));
+    Assert.assertTrue("candidates " + candidates.size(), candidates.size() < 100);
+  }
+
+  private static double jaccard(String a, String b, int n) {
+    Set<Long> left = new HashSet<>();
+    Set<Long> right = new HashSet<>();
+    new Shingler(n).forEach(a, left::add);
+    new Shingler(n).forEach(b, right::add);
+    Set<Long> union = new HashSet<>(left);
+    union.addAll(right);
+    left.retainAll(right);
+    return (double) left.size() / union.size();
+  }
+}
@@ -0,0 +1,51 @@
+package com.github.rolandhe.hash;
+
+import com.github.rolandhe.hash.cityhash.CityHash;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * int、long入口的hash结果必须与hash对应的小端字节一致
+ */
+public class TestCasePrimitive {
+
+  @Test
+  public void testPrimitive(){
+    CityHash cityHash = new CityHash();
+    Random random = new Random(13);
+    long[] samples = {0L, 1L, -1L, Long.MIN_VALUE, Long.MAX_VALUE, 0x80L, 0x1234567890abcdefL};
+    for (int i = 0; i < 200; i++) {
+      long v0 = i < samples.length ? samples[i] : random.nextLong();
+      long v1 = random.nextLong();
+      int iv = (int) v0;
+
+      ByteBuffer buffer = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+      buffer.putInt(0, iv);
+      Assert.assertEquals(cityHash.hash32(buffer.array(), 0, 4), cityHash.hash32(iv));
+
+      buffer.putLong(0, v0).putLong(8, v1);
+      Assert.assertEquals(cityHash.hash64(buffer.array(), 0, 8), cityHash.hash64(v0));
+      Assert.assertEquals(cityHash.hash64(buffer.array(), 0, 16), cityHash.hash64(v0, v1));
+    }
+  }
+
+  @Test
+  public void testLongArray(){
+    CityHash cityHash = new CityHash();
+    Random random = new Random(17);
+    for (int n = 0; n < 40; n++) {
+      long[] values = new long[n];
+      ByteBuffer buffer = ByteBuffer.allocate(n * 8).order(ByteOrder.LITTLE_ENDIAN);
+      for (int i = 0; i < n; i++) {
+        values[i] = random.nextLong();
+        buffer.putLong(values[i]);
+      }
+      Assert.assertEquals(cityHash.hash64(buffer.array(), 0, n * 8), cityHash.hash64(values));
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package com.github.rolandhe.hash;
+
+import com.github.rolandhe.hash.cityhash.CityHash;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * jump hash与一致性hash环：增减节点时只有必要的key移动，结果与节点加入顺序无关
+ */
+public class TestCaseRouter {
+
+  @Test
+  public void testJumpHash(){
+    CityHash cityHash = new CityHash();
+    int[] counts = new int[10];
+    for (int i = 0; i < 100000; i++) {
+      long key = cityHash.hash64("key-" + i);
+      for (int buckets = 1; buckets < 10; buckets++) {
+        int before = JumpHash.bucket(key, buckets);
+        int after = JumpHash.bucket(key, buckets + 1);
+        Assert.assertTrue(before >= 0 && before < buckets);
+        // 增加分片时key要么不动，要么移动到新分片
+        Assert.assertTrue(after == before || after == buckets);
+      }
+      counts[JumpHash.bucket(key, 10)]++;
+    }
+    for (int count : counts) {
+      Assert.assertTrue(Arrays.toString(counts), Math.abs(count - 10000) < 1000);
+    }
+    Assert.assertEquals(JumpHash.bucket(cityHash.hash64("abc"), 7), JumpHash.bucket("abc", 7));
+  }
+
+  @Test
+  public void testRing(){
+    ConsistentHashRing ring = new ConsistentHashRing();
+    Assert.assertNull(ring.route("any"));
+    String[] nodes = {"cache-01", "cache-02", "cache-03", "cache-04", "cache-05"};
+    for (String node : nodes) {
+      Assert.assertTrue(ring.addNode(node));
+    }
+    Assert.assertFalse(ring.addNode("cache-03"));
+    Assert.assertEquals(Arrays.asList(nodes), ring.nodes());
+
+    ConsistentHashRing reversed = new ConsistentHashRing();
+    for (int i = nodes.length - 1; i >= 0; i--) {
+      reversed.addNode(nodes[i]);
+    }
+
+    int keys = 50000;
+    String[] routes = new String[keys];
+    int[] counts = new int[nodes.length];
+    for (int i = 0; i < keys; i++) {
+      routes[i] = ring.route("user:" + i);
+      Assert.assertEquals(routes[i], reversed.route("user:" + i));
+      counts[Arrays.binarySearch(nodes, routes[i])]++;
+    }
+    for (int count : counts) {
+      Assert.assertTrue(Arrays.toString(counts), Math.abs(count - keys / nodes.length) < keys / nodes.length / 4);
+    }
+
+    // 移除节点只影响原来路由到该节点的key
+    Assert.assertTrue(ring.removeNode("cache-02"));
+    Assert.assertFalse(ring.removeNode("cache-02"));
+    Assert.assertEquals(4, ring.size());
+    for (int i = 0; i < keys; i++) {
+      String route = ring.route("user:" + i);
+      Assert.assertFalse("cache-02".equals(route));
+      if (!routes[i].equals("cache-02")) {
+        Assert.assertEquals(routes[i], route);
+      }
+    }
+
+    // 重新加入后恢复原来的路由
+    ring.addNode("cache-02");
+    for (int i = 0; i < keys; i++) {
+      Assert.assertEquals(routes[i], ring.route("user:" + i));
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package com.github.rolandhe.hash;
+
+import com.github.rolandhe.hash.cityhash.CityHash;
+import com.github.rolandhe.hash.cityhash.CityTreeHash;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 树形hash的结果与线程数、数据载体无关，并且符合文档描述的格式
+ */
+public class TestCaseTree {
+
+  @Test
+  public void testFormat() {
+    int chunkSize = 1000;
+    byte[] bytes = new byte[4500];
+    new Random(3).nextBytes(bytes);
+
+    CityHash cityHash = new CityHash();
+    ByteBuffer leaves = ByteBuffer.allocate(5 * 16).order(ByteOrder.LITTLE_ENDIAN);
+    for (int i = 0; i < 5; i++) {
+      Number128 leaf = cityHash.hash128WithSeed(bytes, i * chunkSize, Math.min(chunkSize, bytes.length - i * chunkSize),
+              new Number128(i, CityTreeHash.LEAF_SEED));
+      leaves.putLong(leaf.getLowValue()).putLong(leaf.getHiValue());
+    }
+    leaves.flip();
+    Number128 expected = cityHash.hash128WithSeed(leaves, new Number128(bytes.length, chunkSize));
+
+    Number128 actual = new CityTreeHash(chunkSize, ForkJoinPool.commonPool()).hash128(bytes, 0, bytes.length);
+    Assert.assertEquals(expected.getLowValue(), actual.getLowValue());
+    Assert.assertEquals(expected.getHiValue(), actual.getHiValue());
+  }
+
+  @Test
+  public void testThreadsAndSources() throws IOException {
+    byte[] bytes = new byte[100_003];
+    new Random(5).nextBytes(bytes);
+    ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+    direct.put(bytes).flip();
+    Path file = Files.createTempFile("cityhash", ".bin");
+    Files.write(file, bytes);
+
+    ForkJoinPool single = new ForkJoinPool(1);
+    ForkJoinPool multi = new ForkJoinPool(4);
+    try {
+      for (int length : new int[]{0, 1, 4096, 4097, bytes.length}) {
+        Number128 expected = new CityTreeHash(4096, single).hash128(bytes, 0, length);
+        CityTreeHash treeHash = new CityTreeHash(4096, multi);
+        assert128(expected, treeHash.hash128(bytes, 0, length));
+        assert128(expected, treeHash.hash128(direct.duplicate().limit(length)));
+      }
+      assert128(new CityTreeHash(4096, single).hash128(bytes, 0, bytes.length),
+              new CityTreeHash(4096, multi).hash128(file));
+    } finally {
+      single.shutdown();
+      multi.shutdown();
+      Files.deleteIfExists(file);
+    }
+  }
+
+  private static void assert128(Number128 expected, Number128 actual){
+    Assert.assertEquals(expected.getLowValue(), actual.getLowValue());
+    Assert.assertEquals(expected.getHiValue(), actual.getHiValue());
+  }
+}